@@ -4,22 +4,65 @@ import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
+import repos.AdmissionControl;
+import repos.LimitedProductStore;
 import repos.ProductRepo;
+import repos.ProductStore;
+import repos.SlowQueryDataSource;
+import repos.SlowQueryLog;
 
 import java.io.IOException;
+import java.sql.SQLException;
 
 public class App extends Application {
+    private static final StartupTimer TIMER = new StartupTimer();
+
+    private Pool pool;
+    private SlowQueryLog slowQueryLog;
 
     @Override
     public void start(Stage stage) throws Exception {
+        TIMER.mark("toolkit started");
+
         Config cfg = Config.parse(new String[] {"jdbc:postgresql://127.0.0.1:5432/postgres", "postgres", "pass"});
-        Pool pool = new Pool(cfg.getDbUrl(), cfg.getDbUser(), cfg.getDbPass());
-        ProductRepo productRepo = new ProductRepo(pool);
+        // does not connect, so a slow database cannot delay the first frame
+        pool = new Pool(cfg.getDbUrl(), cfg.getDbUser(), cfg.getDbPass());
+        slowQueryLog = SlowQueryLog.fromSystemProperties();
+        ProductStore productRepo = new LimitedProductStore(new ProductRepo(new SlowQueryDataSource(pool, slowQueryLog)),
+                AdmissionControl.forPool(pool.getMaximumPoolSize()));
 
-        PrimaryController controller = new PrimaryController(productRepo);
+        PrimaryController controller = new PrimaryController(productRepo, () -> TIMER.mark("first query"));
         Scene scene = new Scene(loadFXML("primary", controller), 640, 480);
         stage.setScene(scene);
         stage.show();
+        TIMER.mark("first frame");
+
+        Thread warmUp = new Thread(() -> warmUp(pool), "pool-warm-up");
+        warmUp.setDaemon(true);
+        warmUp.start();
+    }
+
+    @Override
+    public void stop() {
+        if (slowQueryLog != null) {
+            slowQueryLog.close();
+        }
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    private static void warmUp(Pool pool) {
+        try {
+            pool.warmUp(conn -> {
+                TIMER.mark("connection opened");
+                ProductRepo.prepareStatements(conn);
+            });
+            TIMER.mark("pool warmed up");
+        } catch (SQLException e) {
+            // not fatal, requests will connect and prepare on demand
+            TIMER.mark("pool warm-up failed: " + e.getMessage());
+        }
     }
 
     private static Parent loadFXML(String fxml, Object controller) throws IOException {
@@ -1,28 +1,49 @@
 import exceptions.ArgsException;
 
+import java.util.Arrays;
+
 public class Config {
-    private static final String USAGE = "Usage: app <dbUrl> <dbUser> <dbPass>";
+    private static final String USAGE = "Usage: app <dbUrl>[;<shardDbUrl>...] <dbUser> <dbPass> [" + LoadConfig.USAGE + "]";
     private final String dbUrl;
     private final String dbUser;
     private final String dbPass;
+    private final LoadConfig loadConfig;
 
     public Config(String dbUrl, String dbUser, String dbPass) {
+        this(dbUrl, dbUser, dbPass, null);
+    }
+
+    public Config(String dbUrl, String dbUser, String dbPass, LoadConfig loadConfig) {
         this.dbUrl = dbUrl;
         this.dbUser = dbUser;
         this.dbPass = dbPass;
+        this.loadConfig = loadConfig;
     }
 
     public static Config parse(String[] args) throws ArgsException {
         if (args.length < 3) {
             throw new ArgsException(USAGE);
         }
-        return new Config(args[0], args[1], args[2]);
+        if (args.length == 3) {
+            return new Config(args[0], args[1], args[2]);
+        }
+        if (!args[3].equals("load")) {
+            throw new ArgsException(USAGE);
+        }
+        return new Config(args[0], args[1], args[2], LoadConfig.parse(Arrays.copyOfRange(args, 4, args.length)));
     }
 
     public String getDbUrl() {
         return dbUrl;
     }
 
+    /**
+     * @return Database URLs of the shards, a single URL when not sharded.
+     */
+    public String[] getDbUrls() {
+        return dbUrl.split(";");
+    }
+
     public String getDbUser() {
         return dbUser;
     }
@@ -30,4 +51,12 @@ public class Config {
     public String getDbPass() {
         return dbPass;
     }
+
+    public boolean isLoadMode() {
+        return loadConfig != null;
+    }
+
+    public LoadConfig getLoadConfig() {
+        return loadConfig;
+    }
 }
@@ -0,0 +1,99 @@
+import exceptions.ArgsException;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+public class LoadConfig {
+    public static final String USAGE = "load <products> <threads> <seconds> [getById=50,priceRange=20,update=25,reprice=5]";
+    private static final String DEFAULT_MIX = "getById=50,priceRange=20,update=25,reprice=5";
+
+    private final int products;
+    private final int threads;
+    private final int seconds;
+    private final Map<LoadGenerator.Operation, Integer> mix;
+
+    public LoadConfig(int products, int threads, int seconds, Map<LoadGenerator.Operation, Integer> mix) {
+        this.products = products;
+        this.threads = threads;
+        this.seconds = seconds;
+        this.mix = mix;
+    }
+
+    /**
+     * Parses load mode arguments.
+     * @param args Arguments following the "load" keyword.
+     * @return Load config.
+     * @throws ArgsException throws when arguments are missing or malformed
+     */
+    public static LoadConfig parse(String[] args) throws ArgsException {
+        if (args.length < 3) {
+            throw new ArgsException(USAGE);
+        }
+
+        int products = parsePositive(args[0], "products");
+        int threads = parsePositive(args[1], "threads");
+        int seconds = parsePositive(args[2], "seconds");
+        Map<LoadGenerator.Operation, Integer> mix = parseMix(args.length > 3 ? args[3] : DEFAULT_MIX);
+
+        return new LoadConfig(products, threads, seconds, mix);
+    }
+
+    public int getProducts() {
+        return products;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getSeconds() {
+        return seconds;
+    }
+
+    public Map<LoadGenerator.Operation, Integer> getMix() {
+        return mix;
+    }
+
+    private static int parsePositive(String value, String name) throws ArgsException {
+        try {
+            int n = Integer.parseInt(value);
+            if (n > 0) {
+                return n;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        throw new ArgsException(String.format("<%s> must be a positive integer", name));
+    }
+
+    private static Map<LoadGenerator.Operation, Integer> parseMix(String value) throws ArgsException {
+        Map<LoadGenerator.Operation, Integer> mix = new EnumMap<>(LoadGenerator.Operation.class);
+
+        for (String part : value.split(",")) {
+            String[] kv = part.split("=");
+            if (kv.length != 2) {
+                throw new ArgsException("Malformed workload mix: " + value);
+            }
+
+            LoadGenerator.Operation op = LoadGenerator.Operation.byName(kv[0].trim());
+            if (op == null) {
+                throw new ArgsException("Unknown operation in workload mix: " + kv[0]);
+            }
+
+            try {
+                int weight = Integer.parseInt(kv[1].trim());
+                if (weight < 0) {
+                    throw new ArgsException("Negative weight in workload mix: " + part);
+                }
+                mix.put(op, weight);
+            } catch (NumberFormatException e) {
+                throw new ArgsException("Malformed weight in workload mix: " + part);
+            }
+        }
+
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new ArgsException("Workload mix has no operations");
+        }
+
+        return mix;
+    }
+}
@@ -0,0 +1,213 @@
+import entities.Product;
+import exceptions.OverloadException;
+import exceptions.StorageException;
+import repos.ProductStore;
+
+import java.io.PrintStream;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Synthetic load generator.
+ * Seeds the products table and runs a weighted mix of repository operations
+ * on a fixed number of threads for a fixed duration.
+ */
+public class LoadGenerator {
+    public enum Operation {
+        GET_BY_ID("getById"),
+        PRICE_RANGE("priceRange"),
+        UPDATE("update"),
+        REPRICE("reprice");
+
+        private final String name;
+
+        Operation(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public static Operation byName(String name) {
+            for (Operation op : values()) {
+                if (op.name.equals(name)) {
+                    return op;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final int SEED_BATCH_SIZE = 1000;
+    private static final int CATEGORIES = 10;
+    private static final double MAX_PRICE = 10000.0;
+    private static final double PRICE_RANGE_WIDTH = 100.0;
+
+    private final ProductStore repo;
+    private final LoadConfig cfg;
+    private final Operation[] ops;
+    private final int[] cumulativeWeights;
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+    private int[] ids = new int[0];
+
+    public LoadGenerator(ProductStore repo, LoadConfig cfg) {
+        this.repo = repo;
+        this.cfg = cfg;
+
+        List<Operation> weighted = new ArrayList<>();
+        List<Integer> cumulative = new ArrayList<>();
+        int sum = 0;
+        for (Map.Entry<Operation, Integer> e : cfg.getMix().entrySet()) {
+            if (e.getValue() > 0) {
+                sum += e.getValue();
+                weighted.add(e.getKey());
+                cumulative.add(sum);
+            }
+        }
+        this.ops = weighted.toArray(new Operation[0]);
+        this.cumulativeWeights = cumulative.stream().mapToInt(Integer::intValue).toArray();
+
+        for (Operation op : Operation.values()) {
+            this.stats.put(op, new Stats());
+        }
+    }
+
+    /**
+     * Replaces the content of the products table with synthetic products.
+     * IDs come from the store, so products created later by the application cannot collide with them.
+     * @throws StorageException throws when SQL error
+     */
+    public void seed() throws StorageException {
+        this.repo.truncate();
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int[] seeded = new int[this.cfg.getProducts()];
+        List<Product> batch = new ArrayList<>(SEED_BATCH_SIZE);
+        for (int i = 0; i < seeded.length; i++) {
+            seeded[i] = this.repo.nextId();
+            batch.add(randomProduct(seeded[i], random));
+            if (batch.size() == SEED_BATCH_SIZE) {
+                this.repo.createBatch(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            this.repo.createBatch(batch);
+        }
+        this.ids = seeded;
+    }
+
+    /**
+     * Runs the workload and blocks until the configured duration elapses.
+     * @throws InterruptedException throws when interrupted while waiting for workers
+     */
+    public void run() throws InterruptedException {
+        if (this.ids.length == 0) {
+            throw new IllegalStateException("Products are not seeded");
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(this.cfg.getSeconds());
+
+        ExecutorService executor = Executors.newFixedThreadPool(this.cfg.getThreads());
+        for (int i = 0; i < this.cfg.getThreads(); i++) {
+            executor.execute(() -> this.work(deadline));
+        }
+        executor.shutdown();
+        if (!executor.awaitTermination(this.cfg.getSeconds() + 60L, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Prints throughput, error rate and latency percentiles per operation.
+     * @param out Output stream.
+     */
+    public void report(PrintStream out) {
+        out.printf("%-12s %10s %10s %8s %8s %10s %10s %10s %10s %10s%n",
+                "operation", "count", "ops/s", "errors", "rejected", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+
+        for (Operation op : this.ops) {
+            Stats s = this.stats.get(op);
+            long count = s.latency.getCount();
+            long failed = s.errors.get() + s.rejected.get();
+            out.printf("%-12s %10d %10.1f %7.2f%% %7.2f%% %10.2f %10.2f %10.2f %10.2f %10.2f%n",
+                    op.getName(),
+                    count,
+                    (double) count / this.cfg.getSeconds(),
+                    percentOf(s.errors.get(), count + failed),
+                    percentOf(s.rejected.get(), count + failed),
+                    s.latency.getPercentileMicros(50) / 1000.0,
+                    s.latency.getPercentileMicros(90) / 1000.0,
+                    s.latency.getPercentileMicros(99) / 1000.0,
+                    s.latency.getPercentileMicros(99.9) / 1000.0,
+                    s.latency.getMaxMicros() / 1000.0);
+        }
+    }
+
+    private void work(long deadline) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        while (System.nanoTime() < deadline) {
+            Operation op = this.nextOperation(random);
+            Stats s = this.stats.get(op);
+
+            long start = System.nanoTime();
+            try {
+                this.execute(op, random);
+                s.latency.recordNanos(System.nanoTime() - start);
+            } catch (OverloadException e) {
+                s.rejected.incrementAndGet();
+            } catch (StorageException e) {
+                s.errors.incrementAndGet();
+            }
+        }
+    }
+
+    private void execute(Operation op, ThreadLocalRandom random) throws StorageException {
+        int id = this.ids[random.nextInt(this.ids.length)];
+
+        switch (op) {
+            case GET_BY_ID -> this.repo.getById(id);
+            case PRICE_RANGE -> {
+                double from = random.nextDouble(MAX_PRICE - PRICE_RANGE_WIDTH);
+                this.repo.getProductsWithPriceRange(from, from + PRICE_RANGE_WIDTH);
+            }
+            case UPDATE -> this.repo.update(id, randomProduct(id, random));
+            // +-1% keeps prices around their seeded values over long runs
+            case REPRICE -> this.repo.increaseCategoryPrice(
+                    categoryOf(random.nextInt(CATEGORIES)), random.nextBoolean() ? 0.01 : -0.0099);
+        }
+    }
+
+    private Operation nextOperation(ThreadLocalRandom random) {
+        int r = random.nextInt(this.cumulativeWeights[this.cumulativeWeights.length - 1]);
+        for (int i = 0; i < this.cumulativeWeights.length; i++) {
+            if (r < this.cumulativeWeights[i]) {
+                return this.ops[i];
+            }
+        }
+        return this.ops[this.ops.length - 1];
+    }
+
+    private static Product randomProduct(int id, ThreadLocalRandom random) {
+        return new Product(id, "good-" + id, random.nextDouble(MAX_PRICE), categoryOf(random.nextInt(CATEGORIES)));
+    }
+
+    private static String categoryOf(int n) {
+        return "category-" + n;
+    }
+
+    private static double percentOf(long part, long total) {
+        return total == 0 ? 0.0 : part * 100.0 / total;
+    }
+
+    private static final class Stats {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+    }
+}
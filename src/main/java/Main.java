@@ -1,22 +1,49 @@
 import exceptions.GenericException;
+import repos.AdmissionControl;
+import repos.LimitedProductStore;
 import repos.ProductRepo;
+import repos.ProductStore;
+import repos.ShardedProductStore;
+import repos.SlowQueryDataSource;
+import repos.SlowQueryLog;
 
+import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 // Usage example: <bin> jdbc:postgresql://127.0.0.1:5432/postgres postgres postgrespw
+// Sharded example: <bin> "jdbc:postgresql://127.0.0.1:5432/postgres;jdbc:postgresql://127.0.0.1:5433/postgres" postgres pass
+// Load test example (truncates the products table!): <bin> <db args> load 100000 64 60 getById=70,update=30
 public class Main {
     public static void main(String[] args) {
         try {
             Config cfg = Config.parse(args);
 
-            Pool pool = new Pool(cfg.getDbUrl(), cfg.getDbUser(), cfg.getDbPass());
-            ProductRepo productRepo = new ProductRepo(pool);
+            SlowQueryLog slowQueryLog = SlowQueryLog.fromSystemProperties();
 
-            Utils.createTable(pool);
+            // every shard has its own pool, so admission control is per shard too
+            List<ProductStore> shards = new ArrayList<>();
+            for (String url : cfg.getDbUrls()) {
+                Pool pool = new Pool(url, cfg.getDbUser(), cfg.getDbPass());
+                Utils.createTable(pool);
+                shards.add(new LimitedProductStore(new ProductRepo(new SlowQueryDataSource(pool, slowQueryLog)),
+                        AdmissionControl.forPool(pool.getMaximumPoolSize())));
+            }
+            ProductStore productRepo = shards.size() == 1 ? shards.get(0) : new ShardedProductStore(shards);
+
+            if (cfg.isLoadMode()) {
+                LoadGenerator generator = new LoadGenerator(productRepo, cfg.getLoadConfig());
+                generator.seed();
+                generator.run();
+                generator.report(System.out);
+            }
         } catch (GenericException e) {
             System.out.println(e.getFullMessage());
-        } catch (SQLException e) {
+        } catch (SQLException | IOException e) {
             e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 }
@@ -4,16 +4,33 @@ import repos.DataSource;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class Pool implements DataSource, AutoCloseable {
+    private static final int MAX_POOL_SIZE = 20;
+    private static final int MIN_IDLE = 4;
+
+    public interface Warmer {
+        void warm(Connection conn) throws SQLException;
+    }
 
-public class Pool implements DataSource {
     private final HikariDataSource dataSource;
 
+    /**
+     * Creates the pool without connecting, connections are opened in the background.
+     * A wrong URL or an unreachable database shows up on the first {@link #getConnection()}.
+     */
     public Pool(String url, String user, String pass) {
         HikariConfig config = new HikariConfig();
         config.setJdbcUrl(url);
         config.setUsername(user);
         config.setPassword(pass);
-        config.setMaximumPoolSize(20);
+        config.setMaximumPoolSize(MAX_POOL_SIZE);
+        config.setMinimumIdle(MIN_IDLE);
+        config.setInitializationFailTimeout(-1);
+        // server-side prepare on the first execution, so warmed statements are reused right away
+        config.addDataSourceProperty("prepareThreshold", 1);
         this.dataSource = new HikariDataSource(config);
     }
 
@@ -21,4 +38,34 @@ public class Pool implements DataSource {
     public Connection getConnection() throws SQLException {
         return dataSource.getConnection();
     }
+
+    public int getMaximumPoolSize() {
+        return dataSource.getMaximumPoolSize();
+    }
+
+    /**
+     * Holds the minimal number of connections at once, so all of them get opened,
+     * and runs the warmer on each of them before returning them to the pool.
+     * @param warmer Connection warmer.
+     * @throws SQLException throws when SQL error
+     */
+    public void warmUp(Warmer warmer) throws SQLException {
+        List<Connection> conns = new ArrayList<>(MIN_IDLE);
+        try {
+            for (int i = 0; i < MIN_IDLE; i++) {
+                Connection conn = dataSource.getConnection();
+                conns.add(conn);
+                warmer.warm(conn);
+            }
+        } finally {
+            for (Connection conn : conns) {
+                conn.close();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        dataSource.close();
+    }
 }
@@ -0,0 +1,11 @@
+/**
+ * Logs how long each startup phase took since the application launch.
+ */
+public class StartupTimer {
+    private final long start = System.nanoTime();
+
+    public void mark(String phase) {
+        System.out.printf("[startup] %s: %d ms (%s)%n",
+                phase, (System.nanoTime() - this.start) / 1_000_000, Thread.currentThread().getName());
+    }
+}
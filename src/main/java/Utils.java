@@ -1,3 +1,5 @@
+import repos.SequenceIdAllocator;
+
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -11,6 +13,7 @@ public class Utils {
                 "good text not null," +
                 "price real not null," +
                 "category_name text not null)");
+        SequenceIdAllocator.createSequence(conn);
 
     }
 
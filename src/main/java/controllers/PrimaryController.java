@@ -10,14 +10,14 @@ import javafx.fxml.Initializable;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.cell.PropertyValueFactory;
-import repos.ProductRepo;
+import repos.ProductStore;
 
 import java.net.URL;
 import java.util.List;
 import java.util.ResourceBundle;
 
 public class PrimaryController implements Initializable {
-    private final ProductRepo repo;
+    private final ProductStore repo;
 
     @FXML
     private TableView<Product> productsTable;
@@ -36,8 +36,15 @@ public class PrimaryController implements Initializable {
 
     private final ObservableList<Product> products = FXCollections.observableArrayList();
 
-    public PrimaryController(ProductRepo repo) {
+    private Runnable onFirstLoad;
+
+    /**
+     * @param repo        Product store.
+     * @param onFirstLoad Called once on the FX thread after the first products are loaded, may be null.
+     */
+    public PrimaryController(ProductStore repo, Runnable onFirstLoad) {
         this.repo = repo;
+        this.onFirstLoad = onFirstLoad;
     }
 
     @Override
@@ -61,5 +68,11 @@ public class PrimaryController implements Initializable {
 
         this.products.clear();
         this.products.addAll(allProducts);
+
+        if (this.onFirstLoad != null) {
+            Runnable callback = this.onFirstLoad;
+            this.onFirstLoad = null;
+            callback.run();
+        }
     }
 }
@@ -0,0 +1,14 @@
+package exceptions;
+
+/**
+ * Thrown when a storage call is rejected by admission control instead of being executed.
+ * Callers may retry later; no work has been sent to the database.
+ */
+public class OverloadException extends StorageException {
+    private static final int CODE = 3;
+    private static final String MSG = "Data storage overloaded";
+
+    public OverloadException(String details) {
+        super(CODE, MSG, details, null);
+    }
+}
@@ -7,4 +7,8 @@ public class StorageException extends GenericException {
     public StorageException(String details, Throwable cause) {
         super(CODE, MSG, details, cause);
     }
+
+    protected StorageException(int code, String message, String details, Throwable cause) {
+        super(code, message, details, cause);
+    }
 }
@@ -0,0 +1,285 @@
+package repos;
+
+import exceptions.OverloadException;
+import exceptions.StorageException;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control in front of the connection pool.
+ * Every operation class has its own concurrency limit and a bounded wait queue,
+ * all of them share a global limit (normally the pool size).
+ * Free slots are handed to queued callers in priority order: READ, then WRITE, then BULK.
+ * An operation holding several connections at once acquires that many slots together.
+ * Callers that cannot be queued, or wait longer than their deadline, are rejected with {@link OverloadException}.
+ */
+public class AdmissionControl {
+    public enum OperationClass {
+        /** Interactive point and range reads. */
+        READ,
+        /** Single row writes. */
+        WRITE,
+        /** Full scans, batch inserts and category-wide updates. */
+        BULK
+    }
+
+    /**
+     * Limits of a single operation class.
+     */
+    public static final class Limit {
+        private final int maxConcurrent;
+        private final int maxQueued;
+        private final long maxWaitMillis;
+
+        /**
+         * @param maxConcurrent Max calls of the class running at the same time.
+         * @param maxQueued     Max calls of the class waiting for a slot, 0 means reject immediately.
+         * @param maxWaitMillis Max time a call may wait for a slot.
+         */
+        public Limit(int maxConcurrent, int maxQueued, long maxWaitMillis) {
+            if (maxConcurrent < 1 || maxQueued < 0 || maxWaitMillis < 0) {
+                throw new IllegalArgumentException("Invalid admission limit");
+            }
+            this.maxConcurrent = maxConcurrent;
+            this.maxQueued = maxQueued;
+            this.maxWaitMillis = maxWaitMillis;
+        }
+
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public int getMaxQueued() {
+            return maxQueued;
+        }
+
+        public long getMaxWaitMillis() {
+            return maxWaitMillis;
+        }
+    }
+
+    /**
+     * Granted slot. Must be closed exactly once, closing it again is a no-op.
+     */
+    public final class Permit implements AutoCloseable {
+        private final OperationClass opClass;
+        private final int slots;
+        private boolean released;
+
+        private Permit(OperationClass opClass, int slots) {
+            this.opClass = opClass;
+            this.slots = slots;
+        }
+
+        @Override
+        public void close() {
+            release(this);
+        }
+    }
+
+    private static final class Waiter {
+        private final Condition cond;
+        private final int slots;
+        private boolean granted;
+
+        private Waiter(Condition cond, int slots) {
+            this.cond = cond;
+            this.slots = slots;
+        }
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final int maxTotal;
+    private final Map<OperationClass, Limit> limits = new EnumMap<>(OperationClass.class);
+    private final Map<OperationClass, ArrayDeque<Waiter>> queues = new EnumMap<>(OperationClass.class);
+    private final Map<OperationClass, Integer> running = new EnumMap<>(OperationClass.class);
+    private final Map<OperationClass, AtomicLong> rejected = new EnumMap<>(OperationClass.class);
+    private int runningTotal;
+
+    public AdmissionControl(int maxTotal, Limit read, Limit write, Limit bulk) {
+        if (maxTotal < 1) {
+            throw new IllegalArgumentException("Invalid admission limit");
+        }
+        this.maxTotal = maxTotal;
+        this.limits.put(OperationClass.READ, read);
+        this.limits.put(OperationClass.WRITE, write);
+        this.limits.put(OperationClass.BULK, bulk);
+
+        for (OperationClass opClass : OperationClass.values()) {
+            this.queues.put(opClass, new ArrayDeque<>());
+            this.running.put(opClass, 0);
+            this.rejected.put(opClass, new AtomicLong());
+        }
+    }
+
+    /**
+     * Default limits for a pool of the given size.
+     * Reads may use the whole pool, writes at most a half, bulk operations at most a quarter,
+     * so a batch job can never take all the connections from interactive users.
+     * @param poolSize Connection pool size.
+     * @return Admission control.
+     */
+    public static AdmissionControl forPool(int poolSize) {
+        return new AdmissionControl(poolSize,
+                new Limit(poolSize, poolSize * 4, 1000),
+                new Limit(Math.max(1, poolSize / 2), poolSize * 2, 2000),
+                new Limit(Math.max(1, poolSize / 4), poolSize, 5000));
+    }
+
+    /**
+     * Acquires a slot for the operation, waiting in the class queue if there is no free one.
+     * @param opClass   Operation class.
+     * @param operation Operation name used in the error details.
+     * @return Permit to be closed after the operation.
+     * @throws OverloadException throws when the queue is full or the wait deadline is exceeded
+     * @throws StorageException  throws when the thread is interrupted while waiting
+     */
+    public Permit acquire(OperationClass opClass, String operation) throws StorageException {
+        return this.acquire(opClass, 1, operation);
+    }
+
+    /**
+     * Acquires several slots at once for an operation holding that many connections,
+     * waiting in the class queue until all of them are free.
+     * @param opClass   Operation class.
+     * @param slots     Number of slots, at most the class concurrency limit.
+     * @param operation Operation name used in the error details.
+     * @return Permit to be closed after the operation, releases all the slots.
+     * @throws OverloadException throws when the queue is full or the wait deadline is exceeded
+     * @throws StorageException  throws when the thread is interrupted while waiting
+     */
+    public Permit acquire(OperationClass opClass, int slots, String operation) throws StorageException {
+        if (slots < 1 || slots > this.getMaxSlots(opClass)) {
+            throw new IllegalArgumentException("Invalid number of slots: " + slots);
+        }
+        Limit limit = this.limits.get(opClass);
+        ArrayDeque<Waiter> queue = this.queues.get(opClass);
+
+        this.lock.lock();
+        try {
+            if (queue.isEmpty() && this.hasFreeSlots(opClass, slots)) {
+                this.take(opClass, slots);
+                return new Permit(opClass, slots);
+            }
+            if (queue.size() >= limit.getMaxQueued()) {
+                throw this.reject(opClass, operation, "queue is full");
+            }
+
+            Waiter waiter = new Waiter(this.lock.newCondition(), slots);
+            queue.addLast(waiter);
+
+            long nanos = TimeUnit.MILLISECONDS.toNanos(limit.getMaxWaitMillis());
+            try {
+                while (!waiter.granted) {
+                    if (nanos <= 0) {
+                        queue.remove(waiter);
+                        throw this.reject(opClass, operation, "wait deadline exceeded");
+                    }
+                    nanos = waiter.cond.awaitNanos(nanos);
+                }
+            } catch (InterruptedException e) {
+                if (waiter.granted) {
+                    this.untake(opClass, slots);
+                    this.dispatch();
+                } else {
+                    queue.remove(waiter);
+                }
+                Thread.currentThread().interrupt();
+                throw new StorageException(operation, e);
+            }
+
+            return new Permit(opClass, slots);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @param opClass Operation class.
+     * @return Max slots a single operation of the class may acquire.
+     */
+    public int getMaxSlots(OperationClass opClass) {
+        return Math.min(this.limits.get(opClass).getMaxConcurrent(), this.maxTotal);
+    }
+
+    /**
+     * @param opClass Operation class.
+     * @return Number of calls of the class rejected so far.
+     */
+    public long getRejectedCount(OperationClass opClass) {
+        return this.rejected.get(opClass).get();
+    }
+
+    /**
+     * @param opClass Operation class.
+     * @return Number of calls of the class waiting for a slot right now.
+     */
+    public int getQueuedCount(OperationClass opClass) {
+        this.lock.lock();
+        try {
+            return this.queues.get(opClass).size();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void release(Permit permit) {
+        this.lock.lock();
+        try {
+            if (permit.released) {
+                return;
+            }
+            permit.released = true;
+            this.untake(permit.opClass, permit.slots);
+            this.dispatch();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Hands free slots to queued callers, higher priority classes first.
+     * Must be called under the lock.
+     */
+    private void dispatch() {
+        for (OperationClass opClass : OperationClass.values()) {
+            ArrayDeque<Waiter> queue = this.queues.get(opClass);
+            // FIFO within the class, a waiter needing several slots is not overtaken by smaller ones
+            while (!queue.isEmpty() && this.hasFreeSlots(opClass, queue.peekFirst().slots)) {
+                Waiter waiter = queue.pollFirst();
+                waiter.granted = true;
+                this.take(opClass, waiter.slots);
+                waiter.cond.signal();
+            }
+            if (this.runningTotal >= this.maxTotal) {
+                return;
+            }
+        }
+    }
+
+    private boolean hasFreeSlots(OperationClass opClass, int slots) {
+        return this.runningTotal + slots <= this.maxTotal
+                && this.running.get(opClass) + slots <= this.limits.get(opClass).getMaxConcurrent();
+    }
+
+    private void take(OperationClass opClass, int slots) {
+        this.running.merge(opClass, slots, Integer::sum);
+        this.runningTotal += slots;
+    }
+
+    private void untake(OperationClass opClass, int slots) {
+        this.running.merge(opClass, -slots, Integer::sum);
+        this.runningTotal -= slots;
+    }
+
+    private OverloadException reject(OperationClass opClass, String operation, String reason) {
+        this.rejected.get(opClass).incrementAndGet();
+        return new OverloadException(String.format("%s: %s %s", operation, opClass, reason));
+    }
+}
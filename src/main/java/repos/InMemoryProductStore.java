@@ -0,0 +1,401 @@
+package repos;
+
+import entities.Product;
+import exceptions.StorageException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Embedded in-memory product store for deployments where the whole catalog fits in RAM.
+ * Products are kept in striped primitive-keyed maps, plus a price-ordered index and a category index.
+ * Point operations lock a single stripe; multi-row writes lock all the stripes they touch in stripe order.
+ * Multi-row reads are served from the price index without any lock, so they never block writers.
+ * Note: such reads are weakly consistent, a product changed concurrently may be missing from the result
+ * and a concurrent multi-row write may be seen partially.
+ * Optionally every change is written to a {@link WriteAheadLog} before it is applied,
+ * and the log is replayed on start.
+ */
+public class InMemoryProductStore implements ProductStore, AutoCloseable {
+    private static final int STRIPES = 16;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final ConcurrentNavigableMap<PriceKey, Product> byPrice = new ConcurrentSkipListMap<>();
+    private final Map<String, Set<Integer>> byCategory = new ConcurrentHashMap<>();
+    // always above every stored ID, so generated IDs never collide with restored or caller-chosen ones
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    private final WriteAheadLog log;
+
+    /**
+     * Creates a volatile store.
+     */
+    public InMemoryProductStore() {
+        for (int i = 0; i < STRIPES; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.log = null;
+    }
+
+    /**
+     * Creates a store persisted to the write-ahead log, restoring its content from the log.
+     * @param logFile Log file, created if not exists.
+     * @param sync    Whether to fsync the log on every change.
+     * @throws StorageException throws when the log cannot be opened or read
+     */
+    public InMemoryProductStore(Path logFile, boolean sync) throws StorageException {
+        for (int i = 0; i < STRIPES; i++) {
+            this.stripes[i] = new Stripe();
+        }
+
+        try {
+            this.log = new WriteAheadLog(logFile, sync);
+            this.log.replay(
+                    id -> {
+                        Product p = this.stripeOf(id).products.get(id);
+                        if (p != null) {
+                            this.removeIndexed(p);
+                        }
+                    },
+                    p -> {
+                        Product prev = this.stripeOf(p.getId()).products.get(p.getId());
+                        if (prev != null) {
+                            this.removeIndexed(prev);
+                        }
+                        this.putIndexed(p);
+                    });
+        } catch (IOException e) {
+            throw new StorageException("InMemoryProductStore(" + logFile + ")", e);
+        }
+    }
+
+    @Override
+    public int nextId() {
+        return this.nextId.getAndIncrement();
+    }
+
+    @Override
+    public List<Product> getAll() {
+        // every product is in the price index
+        return new ArrayList<>(this.byPrice.values());
+    }
+
+    @Override
+    public Product getById(int id) {
+        Stripe s = this.stripeOf(id);
+        s.lock.readLock().lock();
+        try {
+            return s.products.get(id);
+        } finally {
+            s.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Product> getMostExpensive() {
+        Map.Entry<PriceKey, Product> last = this.byPrice.lastEntry();
+        if (last == null) {
+            return new ArrayList<>();
+        }
+        double max = last.getKey().price;
+        return this.priceRange(max, max);
+    }
+
+    @Override
+    public List<Product> getProductsWithPriceRange(double from, double to) {
+        if (from > to) {
+            return new ArrayList<>();
+        }
+
+        return this.priceRange(from, to);
+    }
+
+    @Override
+    public void create(Product product) throws StorageException {
+        this.createBatch(Collections.singletonList(product), "InMemoryProductStore.create()");
+    }
+
+    @Override
+    public void createBatch(List<Product> products) throws StorageException {
+        this.createBatch(products, "InMemoryProductStore.createBatch()");
+    }
+
+    @Override
+    public void update(int id, Product product) throws StorageException {
+        int[] touched = stripeIndexes(new int[] {id, product.getId()});
+        this.lock(touched);
+        try {
+            Product prev = this.stripeOf(id).products.get(id);
+            if (prev == null) {
+                return;
+            }
+            if (product.getId() != id && this.stripeOf(product.getId()).products.containsKey(product.getId())) {
+                throw duplicate("InMemoryProductStore.update()", product.getId());
+            }
+
+            this.append("InMemoryProductStore.update()", new int[] {id}, Collections.singletonList(product));
+            this.removeIndexed(prev);
+            this.putIndexed(product);
+        } finally {
+            this.unlock(touched);
+        }
+    }
+
+    @Override
+    public void increaseCategoryPrice(String categoryName, double percent) throws StorageException {
+        this.lockAll();
+        try {
+            List<Product> repriced = new ArrayList<>();
+            for (int id : this.byCategory.getOrDefault(categoryName, Collections.emptySet())) {
+                Product p = this.stripeOf(id).products.get(id);
+                repriced.add(new Product(p.getId(), p.getGood(), p.getPrice() + p.getPrice() * percent, p.getCategoryName()));
+            }
+            if (repriced.isEmpty()) {
+                return;
+            }
+
+            this.append("InMemoryProductStore.increaseCategoryPrice()", new int[0], repriced);
+            for (Product p : repriced) {
+                this.removeIndexed(this.stripeOf(p.getId()).products.get(p.getId()));
+                this.putIndexed(p);
+            }
+        } finally {
+            this.unlockAll();
+        }
+    }
+
+    @Override
+    public void delete(int id) throws StorageException {
+        Stripe s = this.stripeOf(id);
+        s.lock.writeLock().lock();
+        try {
+            Product prev = s.products.get(id);
+            if (prev == null) {
+                return;
+            }
+
+            this.append("InMemoryProductStore.delete()", new int[] {id}, Collections.emptyList());
+            this.removeIndexed(prev);
+        } finally {
+            s.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteBatch(List<Integer> ids) throws StorageException {
+        int[] touched = stripeIndexes(ids.stream().mapToInt(Integer::intValue).toArray());
+        this.lock(touched);
+        try {
+            int[] existing = ids.stream()
+                    .mapToInt(Integer::intValue)
+                    .distinct()
+                    .filter(id -> this.stripeOf(id).products.containsKey(id))
+                    .toArray();
+            if (existing.length == 0) {
+                return;
+            }
+
+            this.append("InMemoryProductStore.deleteBatch()", existing, Collections.emptyList());
+            for (int id : existing) {
+                this.removeIndexed(this.stripeOf(id).products.get(id));
+            }
+        } finally {
+            this.unlock(touched);
+        }
+    }
+
+    @Override
+    public void deleteAllCategoryProducts(String categoryName) throws StorageException {
+        this.lockAll();
+        try {
+            int[] ids = this.byCategory.getOrDefault(categoryName, Collections.emptySet()).stream()
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            if (ids.length == 0) {
+                return;
+            }
+
+            this.append("InMemoryProductStore.deleteAllCategoryProducts()", ids, Collections.emptyList());
+            for (int id : ids) {
+                this.removeIndexed(this.stripeOf(id).products.get(id));
+            }
+        } finally {
+            this.unlockAll();
+        }
+    }
+
+    @Override
+    public void truncate() throws StorageException {
+        this.lockAll();
+        try {
+            if (this.log != null) {
+                this.log.reset();
+            }
+            for (Stripe s : this.stripes) {
+                s.products.clear();
+            }
+            this.byPrice.clear();
+            this.byCategory.clear();
+        } catch (IOException e) {
+            throw new StorageException("InMemoryProductStore.truncate()", e);
+        } finally {
+            this.unlockAll();
+        }
+    }
+
+    /**
+     * Closes the write-ahead log, the store must not be used afterwards.
+     * @throws StorageException throws when I/O error
+     */
+    @Override
+    public void close() throws StorageException {
+        if (this.log == null) {
+            return;
+        }
+        try {
+            this.log.close();
+        } catch (IOException e) {
+            throw new StorageException("InMemoryProductStore.close()", e);
+        }
+    }
+
+    private void createBatch(List<Product> products, String operation) throws StorageException {
+        int[] ids = products.stream().mapToInt(Product::getId).toArray();
+        int[] touched = stripeIndexes(ids);
+        this.lock(touched);
+        try {
+            Set<Integer> seen = new HashSet<>();
+            for (int id : ids) {
+                if (!seen.add(id) || this.stripeOf(id).products.containsKey(id)) {
+                    throw duplicate(operation, id);
+                }
+            }
+
+            this.append(operation, new int[0], products);
+            for (Product p : products) {
+                this.putIndexed(p);
+            }
+        } finally {
+            this.unlock(touched);
+        }
+    }
+
+    private List<Product> priceRange(double from, double to) {
+        return new ArrayList<>(this.byPrice.subMap(
+                new PriceKey(from, Integer.MIN_VALUE), true,
+                new PriceKey(to, Integer.MAX_VALUE), true).values());
+    }
+
+    /**
+     * Must be called under the write lock of the product stripe.
+     */
+    private void putIndexed(Product p) {
+        this.stripeOf(p.getId()).products.put(p.getId(), p);
+        this.byPrice.put(new PriceKey(p.getPrice(), p.getId()), p);
+        if (p.getId() >= this.nextId.get()) {
+            this.nextId.accumulateAndGet(p.getId() + 1, Math::max);
+        }
+        // mutate category sets only inside compute, so a set is never dropped while another stripe adds to it
+        this.byCategory.compute(p.getCategoryName(), (k, ids) -> {
+            Set<Integer> set = ids != null ? ids : ConcurrentHashMap.newKeySet();
+            set.add(p.getId());
+            return set;
+        });
+    }
+
+    /**
+     * Must be called under the write lock of the product stripe.
+     */
+    private void removeIndexed(Product p) {
+        this.stripeOf(p.getId()).products.remove(p.getId());
+        this.byPrice.remove(new PriceKey(p.getPrice(), p.getId()));
+        this.byCategory.computeIfPresent(p.getCategoryName(), (k, ids) -> {
+            ids.remove(p.getId());
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private void append(String operation, int[] removes, List<Product> puts) throws StorageException {
+        if (this.log == null) {
+            return;
+        }
+        try {
+            this.log.append(removes, puts);
+        } catch (IOException e) {
+            throw new StorageException(operation, e);
+        }
+    }
+
+    private Stripe stripeOf(int id) {
+        return this.stripes[stripeIndex(id)];
+    }
+
+    private void lock(int[] stripeIndexes) {
+        for (int i : stripeIndexes) {
+            this.stripes[i].lock.writeLock().lock();
+        }
+    }
+
+    private void unlock(int[] stripeIndexes) {
+        for (int i = stripeIndexes.length - 1; i >= 0; i--) {
+            this.stripes[stripeIndexes[i]].lock.writeLock().unlock();
+        }
+    }
+
+    private void lockAll() {
+        for (Stripe s : this.stripes) {
+            s.lock.writeLock().lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = STRIPES - 1; i >= 0; i--) {
+            this.stripes[i].lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return Sorted distinct stripe indexes of the IDs, the order prevents deadlocks.
+     */
+    private static int[] stripeIndexes(int[] ids) {
+        return Arrays.stream(ids).map(InMemoryProductStore::stripeIndex).sorted().distinct().toArray();
+    }
+
+    private static int stripeIndex(int id) {
+        // top bits of the Fibonacci hash, the stripe map picks its slot from the low ones,
+        // so IDs of the same stripe still spread over the whole table
+        return (id * 0x9E3779B9) >>> (Integer.SIZE - Integer.numberOfTrailingZeros(STRIPES));
+    }
+
+    private static StorageException duplicate(String operation, int id) {
+        return new StorageException(operation,
+                new SQLIntegrityConstraintViolationException("Duplicate product ID " + id));
+    }
+
+    private static final class Stripe {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final IntProductMap products = new IntProductMap();
+    }
+
+    private static final class PriceKey implements Comparable<PriceKey> {
+        private final double price;
+        private final int id;
+
+        private PriceKey(double price, int id) {
+            this.price = price;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(PriceKey o) {
+            int c = Double.compare(this.price, o.price);
+            return c != 0 ? c : Integer.compare(this.id, o.id);
+        }
+    }
+}
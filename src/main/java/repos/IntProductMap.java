@@ -0,0 +1,113 @@
+package repos;
+
+import entities.Product;
+
+/**
+ * Open addressing hash map from primitive int ID to product.
+ * Linear probing with backward shift deletion, no boxing and no tombstones.
+ * Not thread-safe.
+ */
+final class IntProductMap {
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private Product[] values;
+    private int size;
+
+    IntProductMap() {
+        this.keys = new int[MIN_CAPACITY];
+        this.values = new Product[MIN_CAPACITY];
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    boolean containsKey(int key) {
+        return this.values[this.find(key)] != null;
+    }
+
+    Product get(int key) {
+        return this.values[this.find(key)];
+    }
+
+    /**
+     * @return Previous value or null.
+     */
+    Product put(int key, Product value) {
+        int slot = this.find(key);
+        Product prev = this.values[slot];
+        this.keys[slot] = key;
+        this.values[slot] = value;
+
+        if (prev == null && ++this.size * 4 > this.values.length * 3) {
+            this.resize(this.values.length * 2);
+        }
+        return prev;
+    }
+
+    /**
+     * @return Removed value or null.
+     */
+    Product remove(int key) {
+        int slot = this.find(key);
+        Product prev = this.values[slot];
+        if (prev == null) {
+            return null;
+        }
+
+        // shift the following entries of the probe chain back, so lookups never stop too early
+        int mask = this.values.length - 1;
+        int hole = slot;
+        int i = (slot + 1) & mask;
+        while (this.values[i] != null) {
+            int home = slotOf(this.keys[i], mask);
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                this.keys[hole] = this.keys[i];
+                this.values[hole] = this.values[i];
+                hole = i;
+            }
+            i = (i + 1) & mask;
+        }
+        this.values[hole] = null;
+        this.size--;
+
+        return prev;
+    }
+
+    void clear() {
+        this.keys = new int[MIN_CAPACITY];
+        this.values = new Product[MIN_CAPACITY];
+        this.size = 0;
+    }
+
+    private int find(int key) {
+        int mask = this.values.length - 1;
+        int i = slotOf(key, mask);
+        while (this.values[i] != null && this.keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = this.keys;
+        Product[] oldValues = this.values;
+        this.keys = new int[capacity];
+        this.values = new Product[capacity];
+
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = this.find(oldKeys[i]);
+                this.keys[slot] = oldKeys[i];
+                this.values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int slotOf(int key, int mask) {
+        // Fibonacci hashing spreads sequential IDs over the table
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,119 @@
+package repos;
+
+import entities.Product;
+import exceptions.StorageException;
+import repos.AdmissionControl.OperationClass;
+import repos.AdmissionControl.Permit;
+
+import java.util.List;
+
+/**
+ * Product store guarded by {@link AdmissionControl}.
+ * Under overload calls fail fast with {@link exceptions.OverloadException}
+ * instead of piling up inside the connection pool.
+ */
+public class LimitedProductStore implements ProductStore {
+    private final ProductStore store;
+    private final AdmissionControl admission;
+
+    public LimitedProductStore(ProductStore store, AdmissionControl admission) {
+        this.store = store;
+        this.admission = admission;
+    }
+
+    /**
+     * Not limited: almost every call is served from the reserved block without the database.
+     */
+    @Override
+    public int nextId() throws StorageException {
+        return this.store.nextId();
+    }
+
+    @Override
+    public List<Product> getAll() throws StorageException {
+        try (Permit ignored = this.admission.acquire(OperationClass.BULK, "LimitedProductStore.getAll()")) {
+            return this.store.getAll();
+        }
+    }
+
+    @Override
+    public Product getById(int id) throws StorageException {
+        try (Permit ignored = this.admission.acquire(OperationClass.READ, "LimitedProductStore.getById()")) {
+            return this.store.getById(id);
+        }
+    }
+
+    @Override
+    public List<Product> getMostExpensive() throws StorageException {
+        try (Permit ignored = this.admission.acquire(OperationClass.READ, "LimitedProductStore.getMostExpensive()")) {
+            return this.store.getMostExpensive();
+        }
+    }
+
+    @Override
+    public List<Product> getProductsWithPriceRange(double from, double to) throws StorageException {
+        try (Permit ignored = this.admission.acquire(OperationClass.READ, "LimitedProductStore.getProductsWithPriceRange()")) {
+            return this.store.getProductsWithPriceRange(from, to);
+        }
+    }
+
+    @Override
+    public void create(Product product) throws StorageException {
+        try (Permit ignored = this.admission.acquire(OperationClass.WRITE, "LimitedProductStore.create()")) {
+            this.store.create(product);
+        }
+    }
+
+    @Override
+    public void createBatch(List<Product> products) throws StorageException {
+        try (Permit ignored = this.admission.acquire(OperationClass.BULK, "LimitedProductStore.createBatch()")) {
+            this.store.createBatch(products);
+        }
+    }
+
+    @Override
+    public void update(int id, Product product) throws StorageException {
+        try (Permit ignored = this.admission.acquire(OperationClass.WRITE, "LimitedProductStore.update()")) {
+            this.store.update(id, product);
+        }
+    }
+
+    @Override
+    public void increaseCategoryPrice(String categoryName, double percent) throws StorageException {
+        try (Permit ignored = this.admission.acquire(OperationClass.BULK, "LimitedProductStore.increaseCategoryPrice()")) {
+            this.store.increaseCategoryPrice(categoryName, percent);
+        }
+    }
+
+    @Override
+    public void delete(int id) throws StorageException {
+        try (Permit ignored = this.admission.acquire(OperationClass.WRITE, "LimitedProductStore.delete()")) {
+            this.store.delete(id);
+        }
+    }
+
+    @Override
+    public void deleteBatch(List<Integer> ids) throws StorageException {
+        try (Permit ignored = this.admission.acquire(OperationClass.BULK, "LimitedProductStore.deleteBatch()")) {
+            this.store.deleteBatch(ids);
+        }
+    }
+
+    @Override
+    public void deleteAllCategoryProducts(String categoryName) throws StorageException {
+        try (Permit ignored = this.admission.acquire(OperationClass.BULK, "LimitedProductStore.deleteAllCategoryProducts()")) {
+            this.store.deleteAllCategoryProducts(categoryName);
+        }
+    }
+
+    @Override
+    public void truncate() throws StorageException {
+        try (Permit ignored = this.admission.acquire(OperationClass.BULK, "LimitedProductStore.truncate()")) {
+            this.store.truncate();
+        }
+    }
+
+    public AdmissionControl getAdmission() {
+        return admission;
+    }
+}
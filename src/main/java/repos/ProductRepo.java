@@ -5,14 +5,55 @@ import exceptions.StorageException;
 
 import java.sql.*;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+
+public class ProductRepo implements ProductStore {
+    private static final String SELECT_ALL = "select * from products";
+    private static final String SELECT_BY_ID = "select * from products where id = ?";
+    private static final String SELECT_BY_PRICE_RANGE = "select * from products where price between ? and ?";
+    private static final String INSERT = "insert into products(id, good, price, category_name) values (?, ?, ?, ?)";
+    private static final String UPDATE = "update products set id = ?, good = ?, price = ?, category_name = ? where id = ?";
+    private static final String INCREASE_CATEGORY_PRICE = "update products set price = price + price * ? where category_name = ?";
+    private static final String DELETE_BY_ID = "delete from products where id = ?";
+    private static final String DELETE_BY_IDS = "delete from products where id = any(?)";
+    private static final String DELETE_BY_CATEGORY = "delete from products where category_name = ?";
+
+    /**
+     * Queries executed on every user request with parameters matching no real row,
+     * see {@link #prepareStatements(Connection)}.
+     * Parameter types must be the same as in the real calls, otherwise the driver prepares the statement again.
+     */
+    private static final Map<String, List<Object>> HOT_QUERIES = new LinkedHashMap<>();
+
+    static {
+        HOT_QUERIES.put(SELECT_ALL, List.of());
+        HOT_QUERIES.put(SELECT_BY_ID, List.of(-1));
+        HOT_QUERIES.put(SELECT_BY_PRICE_RANGE, List.of(1.0, 0.0));
+    }
 
-public class ProductRepo {
     private final DataSource ds;
+    private final SequenceIdAllocator ids;
 
     public ProductRepo(DataSource dataSource) {
         this.ds = dataSource;
+        this.ids = new SequenceIdAllocator(dataSource);
+    }
+
+    /**
+     * Returns a new product ID from the block reserved in the database sequence.
+     * Only one call per block goes to the database.
+     * @return Product ID.
+     * @throws StorageException throws when SQL error
+     */
+    @Override
+    public int nextId() throws StorageException {
+        try {
+            return this.ids.next();
+        } catch (SQLException e) {
+            throw new StorageException("ProductRepo.nextId()", e);
+        }
     }
 
     /**
@@ -21,10 +62,11 @@ public class ProductRepo {
      * @return List of all products in the table.
      * @throws StorageException throws when SQL error
      */
+    @Override
     public List<Product> getAll() throws StorageException {
         try (Connection conn = this.ds.getConnection()) {
-            Statement stmt = conn.createStatement();
-            ResultSet rs = stmt.executeQuery("select * from products");
+            PreparedStatement stmt = conn.prepareStatement(SELECT_ALL);
+            ResultSet rs = stmt.executeQuery();
 
             List<Product> products = new ArrayList<>();
 
@@ -44,9 +86,10 @@ public class ProductRepo {
      * @return The product or null if not exists.
      * @throws StorageException throws when SQL error
      */
+    @Override
     public Product getById(int id) throws StorageException {
         try (Connection conn = this.ds.getConnection()) {
-            PreparedStatement stmt = conn.prepareStatement("select * from products where id = ?");
+            PreparedStatement stmt = conn.prepareStatement(SELECT_BY_ID);
             stmt.setObject(1, id);
 
             ResultSet rs = stmt.executeQuery();
@@ -68,6 +111,7 @@ public class ProductRepo {
      * @return The most expensive products.
      * @throws StorageException throws when SQL error
      */
+    @Override
     public List<Product> getMostExpensive() throws StorageException {
         try (Connection conn = this.ds.getConnection()) {
             Statement stmt = conn.createStatement();
@@ -94,9 +138,10 @@ public class ProductRepo {
      * @return Products with prices between given range
      * @throws StorageException throws when SQL error
      */
+    @Override
     public List<Product> getProductsWithPriceRange(double from, double to) throws StorageException {
         try (Connection conn = this.ds.getConnection()) {
-            PreparedStatement stmt = conn.prepareStatement("select * from products where price between ? and ?");
+            PreparedStatement stmt = conn.prepareStatement(SELECT_BY_PRICE_RANGE);
             stmt.setObject(1, from);
             stmt.setObject(2, to);
 
@@ -119,9 +164,10 @@ public class ProductRepo {
      * @param product Product.
      * @throws StorageException throws when SQL error
      */
+    @Override
     public void create(Product product) throws StorageException {
         try (Connection conn = this.ds.getConnection()) {
-            PreparedStatement stmt = conn.prepareStatement("insert into products(id, good, price, category_name) values (?, ?, ?, ?)");
+            PreparedStatement stmt = conn.prepareStatement(INSERT);
             stmt.setObject(1, product.getId());
             stmt.setObject(2, product.getGood());
             stmt.setObject(3, product.getPrice());
@@ -138,9 +184,10 @@ public class ProductRepo {
      * @param products Products.
      * @throws StorageException throws when SQL error
      */
+    @Override
     public void createBatch(List<Product> products) throws StorageException {
         try (Connection conn = this.ds.getConnection()) {
-            PreparedStatement stmt = conn.prepareStatement("insert into products(id, good, price, category_name) values(?, ?, ?, ?)");
+            PreparedStatement stmt = conn.prepareStatement(INSERT);
             conn.setAutoCommit(false);
 
             for (Product p : products) {
@@ -165,9 +212,10 @@ public class ProductRepo {
      * @param product Product.
      * @throws StorageException throws when SQL error
      */
+    @Override
     public void update(int id, Product product) throws StorageException {
         try (Connection conn = this.ds.getConnection()) {
-            PreparedStatement stmt = conn.prepareStatement("update products set id = ?, good = ?, price = ?, category_name = ? where id = ?");
+            PreparedStatement stmt = conn.prepareStatement(UPDATE);
             stmt.setObject(1, product.getId());
             stmt.setObject(2, product.getGood());
             stmt.setObject(3, product.getPrice());
@@ -180,9 +228,10 @@ public class ProductRepo {
         }
     }
 
+    @Override
     public void increaseCategoryPrice(String categoryName, double percent) throws StorageException {
         try (Connection conn = this.ds.getConnection()) {
-            PreparedStatement stmt = conn.prepareStatement("update products set price = price + price * ? where category_name = ?");
+            PreparedStatement stmt = conn.prepareStatement(INCREASE_CATEGORY_PRICE);
             stmt.setObject(1, percent);
             stmt.setObject(2,categoryName);
 
@@ -197,9 +246,10 @@ public class ProductRepo {
      * @param id Product ID.
      * @throws StorageException throws when SQL error
      */
+    @Override
     public void delete(int id) throws StorageException {
         try (Connection conn = this.ds.getConnection()) {
-            PreparedStatement stmt = conn.prepareStatement("delete from products where id = ?");
+            PreparedStatement stmt = conn.prepareStatement(DELETE_BY_ID);
             stmt.setObject(1, id);
 
             stmt.executeUpdate();
@@ -208,14 +258,32 @@ public class ProductRepo {
         }
     }
 
+    /**
+     * Removes multiple products by ID with a single statement.
+     * @param ids Product IDs.
+     * @throws StorageException throws when SQL error
+     */
+    @Override
+    public void deleteBatch(List<Integer> ids) throws StorageException {
+        try (Connection conn = this.ds.getConnection()) {
+            PreparedStatement stmt = conn.prepareStatement(DELETE_BY_IDS);
+            stmt.setArray(1, conn.createArrayOf("int4", ids.toArray()));
+
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new StorageException("ProductRepo.deleteBatch()", e);
+        }
+    }
+
     /**
      * Removes all products owned by category.
      * @param categoryName Category name.
      * @throws StorageException throws when SQL error
      */
+    @Override
     public void deleteAllCategoryProducts(String categoryName) throws StorageException {
         try (Connection conn = this.ds.getConnection()) {
-            PreparedStatement stmt = conn.prepareStatement("delete from products where category_name = ?");
+            PreparedStatement stmt = conn.prepareStatement(DELETE_BY_CATEGORY);
             stmt.setObject(1, categoryName);
 
             stmt.executeUpdate();
@@ -228,6 +296,7 @@ public class ProductRepo {
      * Truncates the products table.
      * @throws StorageException throws when SQL error
      */
+    @Override
     public void truncate() throws StorageException {
         try (Connection conn = this.ds.getConnection()) {
             Statement stmt = conn.createStatement();
@@ -238,13 +307,35 @@ public class ProductRepo {
         }
     }
 
+    /**
+     * Prepares the hot queries on the server by executing each of them once, reading at most one row.
+     * The driver creates a named server-side statement on execution (with prepareThreshold=1)
+     * and keeps it in the per-connection statement cache, so the real queries skip parsing and planning.
+     * Writes are not warmed up, executing them would lock or scan rows of the live table,
+     * so the first write on a connection is parsed on demand.
+     * @param conn Pooled connection.
+     * @throws SQLException throws when SQL error
+     */
+    public static void prepareStatements(Connection conn) throws SQLException {
+        for (Map.Entry<String, List<Object>> hot : HOT_QUERIES.entrySet()) {
+            try (PreparedStatement stmt = conn.prepareStatement(hot.getKey())) {
+                List<Object> params = hot.getValue();
+                for (int i = 0; i < params.size(); i++) {
+                    stmt.setObject(i + 1, params.get(i));
+                }
+                stmt.setMaxRows(1);
+                stmt.executeQuery().close();
+            }
+        }
+    }
+
     /**
      * Maps result set to the product object.
      * @param rs Result set.
      * @return Product constructed from result set.
      * @throws SQLException throws when SQL error
      */
-    private static Product mapToProduct(ResultSet rs) throws SQLException {
+    static Product mapToProduct(ResultSet rs) throws SQLException {
         return new Product(
                 rs.getInt("id"),
                 rs.getString("good"),
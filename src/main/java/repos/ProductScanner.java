@@ -0,0 +1,304 @@
+package repos;
+
+import entities.Product;
+import exceptions.OverloadException;
+import exceptions.StorageException;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+/**
+ * Parallel full scan of the products table.
+ * The ID range is split into slices which are read concurrently, each on its own pooled connection.
+ * All slices read the same snapshot exported by a coordinating transaction, so the result is consistent
+ * as if read by a single query. A scan with K slices holds K + 1 connections and acquires K + 1 BULK slots
+ * of the pool's admission control up front, so K is capped at the BULK limit - 1, and the pool usage of scans
+ * is accounted together with all the other operations.
+ */
+public class ProductScanner {
+    private static final int FETCH_SIZE = 1000;
+    private static final int SAMPLE_ROWS_PER_SLICE = 1000;
+
+    public enum Split {
+        /** Equal-width ID ranges between min(id) and max(id), best for dense IDs. */
+        MIN_MAX,
+        /** ID ranges with equal row counts estimated from a table sample, best for sparse or skewed IDs. */
+        SAMPLED
+    }
+
+    /**
+     * ID range [from, to) of one slice.
+     */
+    public static final class Slice {
+        private final int index;
+        private final long from;
+        private final long to;
+
+        private Slice(int index, long from, long to) {
+            this.index = index;
+            this.from = from;
+            this.to = to;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public long getFrom() {
+            return from;
+        }
+
+        public long getTo() {
+            return to;
+        }
+    }
+
+    private final DataSource ds;
+    private final AdmissionControl admission;
+    private final int maxSlices;
+
+    /**
+     * @param dataSource Data source.
+     * @param admission  Admission control shared by all users of the data source's pool.
+     */
+    public ProductScanner(DataSource dataSource, AdmissionControl admission) {
+        int maxSlots = admission.getMaxSlots(AdmissionControl.OperationClass.BULK);
+        if (maxSlots < 2) {
+            throw new IllegalArgumentException("Parallel scan needs at least 2 BULK slots");
+        }
+        this.ds = dataSource;
+        this.admission = admission;
+        this.maxSlices = maxSlots - 1;
+    }
+
+    /**
+     * Number of slices used when not given: one per processor, within the BULK limit.
+     * @return Number of slices.
+     */
+    public int defaultSlices() {
+        return Math.min(Runtime.getRuntime().availableProcessors(), this.maxSlices);
+    }
+
+    /**
+     * Reads all products in parallel with the {@link #defaultSlices() default number of slices}.
+     * @param split How to split the ID range.
+     * @return Stream of all products ordered by slice.
+     * @throws StorageException throws when SQL error
+     */
+    public Stream<Product> stream(Split split) throws StorageException {
+        return this.stream(this.defaultSlices(), split);
+    }
+
+    /**
+     * Reads all products in parallel and merges the slices into one stream.
+     * Note: all products are loaded in memory, prefer {@link #scan} for huge data set.
+     * @param slices Number of slices, capped at the BULK limit - 1.
+     * @param split  How to split the ID range.
+     * @return Stream of all products ordered by slice.
+     * @throws StorageException throws when SQL error
+     */
+    public Stream<Product> stream(int slices, Split split) throws StorageException {
+        // consumers are created on this thread in slice order, filled by the workers
+        List<List<Product>> results = new ArrayList<>();
+        this.scan(slices, split, slice -> {
+            List<Product> products = new ArrayList<>();
+            results.add(products);
+            return products::add;
+        });
+        return results.stream().flatMap(List::stream);
+    }
+
+    /**
+     * Reads all products in parallel with the {@link #defaultSlices() default number of slices}.
+     * @param split     How to split the ID range.
+     * @param consumers Creates the consumer of the slice with the given index.
+     * @return Slices actually read.
+     * @throws StorageException throws when SQL error in any slice
+     */
+    public List<Slice> scan(Split split, IntFunction<Consumer<Product>> consumers) throws StorageException {
+        return this.scan(this.defaultSlices(), split, consumers);
+    }
+
+    /**
+     * Reads all products in parallel, every slice is streamed to its own consumer on the thread reading it,
+     * so consumers need no synchronization as long as they do not share state.
+     * @param slices    Number of slices, capped at the BULK limit - 1.
+     * @param split     How to split the ID range.
+     * @param consumers Creates the consumer of the slice with the given index.
+     * @return Slices actually read, may be less than requested when there are few products.
+     * @throws OverloadException throws when the admission control rejects the scan
+     * @throws StorageException  throws when SQL error in any slice
+     */
+    public List<Slice> scan(int slices, Split split, IntFunction<Consumer<Product>> consumers) throws StorageException {
+        if (slices < 1) {
+            throw new IllegalArgumentException("slices must be positive");
+        }
+        int k = Math.min(slices, this.maxSlices);
+
+        // all connections of a scan are reserved up front, two scans holding a part each would wait forever
+        try (AdmissionControl.Permit ignored = this.admission.acquire(AdmissionControl.OperationClass.BULK, k + 1,
+                "ProductScanner.scan()")) {
+            return this.scanSlices(k, split, consumers);
+        }
+    }
+
+    private List<Slice> scanSlices(int slices, Split split, IntFunction<Consumer<Product>> consumers)
+            throws StorageException {
+        try (Connection conn = this.ds.getConnection()) {
+            // isolation first: changing it after autocommit is off could open the transaction too early
+            conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            conn.setAutoCommit(false);
+            try {
+                String snapshot = exportSnapshot(conn);
+                List<Slice> ranges = split == Split.SAMPLED ? splitSampled(conn, slices) : splitMinMax(conn, slices);
+                if (!ranges.isEmpty()) {
+                    this.readSlices(ranges, snapshot, consumers);
+                }
+                return ranges;
+            } finally {
+                // the exported snapshot must stay valid until every slice has started its transaction
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new StorageException("ProductScanner.scan()", e);
+        }
+    }
+
+    private void readSlices(List<Slice> ranges, String snapshot, IntFunction<Consumer<Product>> consumers)
+            throws StorageException {
+        ForkJoinPool workers = new ForkJoinPool(ranges.size());
+        try {
+            List<ForkJoinTask<Void>> tasks = new ArrayList<>(ranges.size());
+            for (Slice slice : ranges) {
+                Consumer<Product> consumer = consumers.apply(slice.index);
+                tasks.add(workers.submit(() -> {
+                    this.readSlice(slice, snapshot, consumer);
+                    return null;
+                }));
+            }
+
+            for (ForkJoinTask<Void> task : tasks) {
+                task.get();
+            }
+        } catch (ExecutionException e) {
+            throw new StorageException("ProductScanner.scan()", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageException("ProductScanner.scan()", e);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private void readSlice(Slice slice, String snapshot, Consumer<Product> consumer) throws SQLException {
+        try (Connection conn = this.ds.getConnection()) {
+            conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            conn.setAutoCommit(false);
+            try {
+                Statement setSnapshot = conn.createStatement();
+                setSnapshot.execute(String.format("set transaction snapshot '%s'", snapshot.replace("'", "''")));
+
+                PreparedStatement stmt = conn.prepareStatement("select * from products where id >= ? and id < ?");
+                // a fetch size inside a transaction makes the driver read rows with a cursor instead of all at once
+                stmt.setFetchSize(FETCH_SIZE);
+                stmt.setObject(1, slice.from);
+                stmt.setObject(2, slice.to);
+
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    consumer.accept(ProductRepo.mapToProduct(rs));
+                }
+                rs.close();
+            } finally {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static String exportSnapshot(Connection conn) throws SQLException {
+        ResultSet rs = conn.createStatement().executeQuery("select pg_export_snapshot()");
+        rs.next();
+        return rs.getString(1);
+    }
+
+    private static List<Slice> splitMinMax(Connection conn, int slices) throws SQLException {
+        ResultSet rs = conn.createStatement().executeQuery("select min(id), max(id) from products");
+        rs.next();
+        long min = rs.getLong(1);
+        if (rs.wasNull()) {
+            return new ArrayList<>();
+        }
+        long max = rs.getLong(2);
+
+        long width = Math.max(1, (max - min + 1 + slices - 1) / slices);
+        TreeSet<Long> bounds = new TreeSet<>();
+        for (long b = min + width; b <= max; b += width) {
+            bounds.add(b);
+        }
+        return toSlices(bounds);
+    }
+
+    private static List<Slice> splitSampled(Connection conn, int slices) throws SQLException {
+        ResultSet rs = conn.createStatement().executeQuery(
+                "select reltuples from pg_class where relname = 'products'");
+        double rows = rs.next() ? rs.getDouble(1) : 0;
+        // reltuples is unknown (0 or -1) until the first analyze, then sample the whole table
+        double percent = rows <= 0 ? 100 : Math.min(100, 100.0 * slices * SAMPLE_ROWS_PER_SLICE / rows);
+
+        Double[] fractions = new Double[slices - 1];
+        for (int i = 1; i < slices; i++) {
+            fractions[i - 1] = (double) i / slices;
+        }
+        if (fractions.length == 0) {
+            return toSlicesIfNotEmpty(conn, new TreeSet<>());
+        }
+
+        // TABLESAMPLE takes a real, the computed percent is inlined rather than bound as double precision
+        PreparedStatement stmt = conn.prepareStatement(String.format(Locale.ROOT,
+                "select percentile_disc(?) within group (order by id) from products tablesample system (%f)", percent));
+        stmt.setArray(1, conn.createArrayOf("float8", fractions));
+
+        ResultSet bounds = stmt.executeQuery();
+        bounds.next();
+        Array array = bounds.getArray(1);
+        if (array == null) {
+            // the sample happened to be empty
+            return splitMinMax(conn, slices);
+        }
+
+        TreeSet<Long> sorted = new TreeSet<>();
+        for (Object b : (Object[]) array.getArray()) {
+            sorted.add(((Number) b).longValue());
+        }
+        return toSlicesIfNotEmpty(conn, sorted);
+    }
+
+    private static List<Slice> toSlicesIfNotEmpty(Connection conn, TreeSet<Long> bounds) throws SQLException {
+        ResultSet rs = conn.createStatement().executeQuery("select exists (select 1 from products)");
+        rs.next();
+        return rs.getBoolean(1) ? toSlices(bounds) : new ArrayList<>();
+    }
+
+    /**
+     * The first and the last slices are open-ended, so every ID is covered whatever the bounds are.
+     */
+    private static List<Slice> toSlices(TreeSet<Long> bounds) {
+        List<Slice> slices = new ArrayList<>(bounds.size() + 1);
+        long from = Integer.MIN_VALUE;
+        for (long b : bounds) {
+            slices.add(new Slice(slices.size(), from, b));
+            from = b;
+        }
+        slices.add(new Slice(slices.size(), from, (long) Integer.MAX_VALUE + 1));
+        return slices;
+    }
+}
@@ -0,0 +1,109 @@
+package repos;
+
+import entities.Product;
+import exceptions.StorageException;
+
+import java.util.List;
+
+/**
+ * Storage of products.
+ * Implementations: {@link ProductRepo} (PostgreSQL) and {@link InMemoryProductStore} (embedded).
+ */
+public interface ProductStore {
+    /**
+     * Reserves a new product ID, unique within the store and never returned again.
+     * Do not mix generated and caller-chosen IDs in one store.
+     * @return Product ID.
+     * @throws StorageException throws when storage error
+     */
+    int nextId() throws StorageException;
+
+    /**
+     * Returns all products, the ordering is not guaranteed.
+     * @return List of all products.
+     * @throws StorageException throws when storage error
+     */
+    List<Product> getAll() throws StorageException;
+
+    /**
+     * Returns the product by ID.
+     * @param id Product ID.
+     * @return The product or null if not exists.
+     * @throws StorageException throws when storage error
+     */
+    Product getById(int id) throws StorageException;
+
+    /**
+     * Returns all products having the maximal price.
+     * @return The most expensive products.
+     * @throws StorageException throws when storage error
+     */
+    List<Product> getMostExpensive() throws StorageException;
+
+    /**
+     * Returns products with prices between given range (inclusive).
+     * @param from From.
+     * @param to   To.
+     * @return Products with prices between given range.
+     * @throws StorageException throws when storage error
+     */
+    List<Product> getProductsWithPriceRange(double from, double to) throws StorageException;
+
+    /**
+     * Creates a new product.
+     * @param product Product.
+     * @throws StorageException throws when storage error or the ID is taken
+     */
+    void create(Product product) throws StorageException;
+
+    /**
+     * Creates multiple products atomically.
+     * @param products Products.
+     * @throws StorageException throws when storage error or any ID is taken
+     */
+    void createBatch(List<Product> products) throws StorageException;
+
+    /**
+     * Replaces the product by ID, the ID itself may be changed too.
+     * Does nothing if the product does not exist.
+     * @param id      Product ID.
+     * @param product Product.
+     * @throws StorageException throws when storage error or the new ID is taken
+     */
+    void update(int id, Product product) throws StorageException;
+
+    /**
+     * Increases prices of all category products by the given share (0.1 is 10%).
+     * @param categoryName Category name.
+     * @param percent      Share of the price to add.
+     * @throws StorageException throws when storage error
+     */
+    void increaseCategoryPrice(String categoryName, double percent) throws StorageException;
+
+    /**
+     * Removes the product by ID.
+     * @param id Product ID.
+     * @throws StorageException throws when storage error
+     */
+    void delete(int id) throws StorageException;
+
+    /**
+     * Removes multiple products by ID atomically, missing IDs are skipped.
+     * @param ids Product IDs.
+     * @throws StorageException throws when storage error
+     */
+    void deleteBatch(List<Integer> ids) throws StorageException;
+
+    /**
+     * Removes all products owned by category.
+     * @param categoryName Category name.
+     * @throws StorageException throws when storage error
+     */
+    void deleteAllCategoryProducts(String categoryName) throws StorageException;
+
+    /**
+     * Removes all products.
+     * @throws StorageException throws when storage error
+     */
+    void truncate() throws StorageException;
+}
@@ -0,0 +1,152 @@
+package repos;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hands out unique IDs reserved in blocks from a PostgreSQL sequence.
+ * The sequence must be created with "increment by" equal to the block size,
+ * so every nextval() reserves the IDs [value, value + blockSize) for this JVM in one round trip.
+ * The increment is checked before the first block is reserved, a mismatch would hand out overlapping blocks.
+ * The first block is also checked against the IDs already stored in the products table, which writers may have
+ * chosen themselves, and blocks at or below them are skipped.
+ * IDs of a block are handed out lock-free, only the thread that exhausts a block fetches the next one.
+ * Unused IDs of a block are lost on restart, so the IDs are unique but not gapless.
+ */
+public class SequenceIdAllocator {
+    public static final String SEQUENCE = "products_id_seq";
+    public static final int BLOCK_SIZE = 1000;
+    public static final String TABLE = "products";
+
+    private static final class Block {
+        private final AtomicInteger next;
+        private final int end;
+
+        private Block(int start, int end) {
+            this.next = new AtomicInteger(start);
+            this.end = end;
+        }
+    }
+
+    private final DataSource ds;
+    private final String sequence;
+    private final int blockSize;
+    private final AtomicReference<Block> block = new AtomicReference<>(new Block(0, 0));
+    private final Object refillLock = new Object();
+    private boolean firstBlockChecked;
+
+    public SequenceIdAllocator(DataSource dataSource) {
+        this(dataSource, SEQUENCE, BLOCK_SIZE);
+    }
+
+    public SequenceIdAllocator(DataSource dataSource, String sequence, int blockSize) {
+        this.ds = dataSource;
+        this.sequence = sequence;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Creates the default sequence if it does not exist, starting above the IDs already stored in the table.
+     * @param conn Connection.
+     * @throws SQLException throws when SQL error
+     */
+    public static void createSequence(Connection conn) throws SQLException {
+        Statement stmt = conn.createStatement();
+        ResultSet rs = stmt.executeQuery(String.format("select to_regclass('%s') is not null", SEQUENCE));
+        rs.next();
+        if (rs.getBoolean(1)) {
+            return;
+        }
+
+        stmt.executeUpdate(String.format("create sequence if not exists %s increment by %d", SEQUENCE, BLOCK_SIZE));
+        stmt.executeQuery(String.format("select setval('%s', coalesce(max(id), 0) + 1, false) from %s",
+                SEQUENCE, TABLE));
+    }
+
+    /**
+     * Returns a new unique ID.
+     * @return ID.
+     * @throws SQLException throws when the next block cannot be reserved
+     */
+    public int next() throws SQLException {
+        while (true) {
+            Block b = this.block.get();
+            int id = b.next.getAndIncrement();
+            if (id < b.end) {
+                return id;
+            }
+
+            synchronized (this.refillLock) {
+                // another thread may have refilled it while we were waiting
+                if (this.block.get() == b) {
+                    int start = this.reserveBlock();
+                    this.block.set(new Block(start, start + this.blockSize));
+                }
+            }
+        }
+    }
+
+    private int reserveBlock() throws SQLException {
+        try (Connection conn = this.ds.getConnection()) {
+            if (!this.firstBlockChecked) {
+                this.verifyIncrement(conn);
+            }
+
+            Statement stmt = conn.createStatement();
+            ResultSet rs = stmt.executeQuery(String.format("select nextval('%s')", this.sequence));
+            rs.next();
+
+            long start = rs.getLong(1);
+            if (!this.firstBlockChecked) {
+                start = this.skipStoredIds(conn, start);
+                this.firstBlockChecked = true;
+            }
+            if (start > Integer.MAX_VALUE - this.blockSize) {
+                throw new SQLException(String.format("Sequence %s exceeded the ID range", this.sequence));
+            }
+            return (int) start;
+        }
+    }
+
+    /**
+     * Reserves blocks until one starts above the max stored ID.
+     * nextval() rather than setval(), so a block reserved concurrently by another allocator is never handed out again.
+     */
+    private long skipStoredIds(Connection conn, long start) throws SQLException {
+        ResultSet rs = conn.createStatement().executeQuery(String.format("select max(id) from %s", TABLE));
+        rs.next();
+        long maxId = rs.getLong(1);
+        if (rs.wasNull() || start > maxId) {
+            return start;
+        }
+
+        // every nextval() is at least the block size above the previous one, so the last one is above maxId
+        long blocks = (maxId - start) / this.blockSize + 1;
+        rs = conn.createStatement().executeQuery(String.format(
+                "select max(nextval('%s')) from generate_series(1, %d)", this.sequence, blocks));
+        rs.next();
+        return rs.getLong(1);
+    }
+
+    private void verifyIncrement(Connection conn) throws SQLException {
+        // "create sequence if not exists" keeps an existing sequence as it is, whatever its increment
+        PreparedStatement stmt = conn.prepareStatement(
+                "select seqincrement from pg_sequence where seqrelid = to_regclass(?)");
+        stmt.setString(1, this.sequence);
+        ResultSet rs = stmt.executeQuery();
+        if (!rs.next()) {
+            throw new SQLException(String.format("Sequence %s does not exist", this.sequence));
+        }
+
+        long increment = rs.getLong(1);
+        if (increment != this.blockSize) {
+            throw new SQLException(String.format("Sequence %s increments by %d, expected the block size %d",
+                    this.sequence, increment, this.blockSize));
+        }
+    }
+}
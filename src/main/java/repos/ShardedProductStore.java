@@ -0,0 +1,269 @@
+package repos;
+
+import entities.Product;
+import exceptions.StorageException;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Product store spread over several shards by the hash of the product ID.
+ * Point operations go to the owning shard, multi-row operations are sent to all shards in parallel
+ * and their results are merged.
+ * Shard 0 owns the ID sequence, so generated IDs are unique across shards, see {@link #nextId()}.
+ * Changing the number or order of shards requires moving the data, the ID hash is not consistent hashing.
+ * Writes touching several shards (batches, ID changes) are not atomic across them.
+ */
+public class ShardedProductStore implements ProductStore, AutoCloseable {
+    private interface ShardCall<T> {
+        T call(ProductStore shard) throws StorageException;
+    }
+
+    private final List<ProductStore> shards;
+    private final ExecutorService executor;
+
+    public ShardedProductStore(List<? extends ProductStore> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard required");
+        }
+        this.shards = List.copyOf(shards);
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "product-shard");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Creates a store with a {@link ProductRepo} per data source.
+     * @param dataSources Data sources of the shards, the order defines the shard numbers.
+     * @return Sharded store.
+     */
+    public static ShardedProductStore ofDataSources(List<? extends DataSource> dataSources) {
+        return new ShardedProductStore(dataSources.stream().map(ProductRepo::new).toList());
+    }
+
+    /**
+     * @param id Product ID.
+     * @return Number of the shard owning the product.
+     */
+    public int shardOf(int id) {
+        // murmur3 finalizer, so sequential or strided IDs spread evenly
+        int h = id;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return Math.floorMod(h, this.shards.size());
+    }
+
+    /**
+     * Returns a new ID generated by shard 0.
+     * Note: an embedded shard only knows the IDs stored in itself, after a restart from the write-ahead logs
+     * shard 0 may return IDs already stored on other shards. Do not generate IDs with embedded shards
+     * that outlive the process, database shards do not have this problem, their sequence is persistent.
+     * @return Product ID.
+     * @throws StorageException throws when storage error
+     */
+    @Override
+    public int nextId() throws StorageException {
+        return this.shards.get(0).nextId();
+    }
+
+    @Override
+    public List<Product> getAll() throws StorageException {
+        return concat(this.scatter(ProductStore::getAll));
+    }
+
+    @Override
+    public Product getById(int id) throws StorageException {
+        return this.shard(id).getById(id);
+    }
+
+    @Override
+    public List<Product> getMostExpensive() throws StorageException {
+        List<Product> candidates = concat(this.scatter(ProductStore::getMostExpensive));
+        double max = candidates.stream().mapToDouble(Product::getPrice).max().orElse(Double.NaN);
+        return candidates.stream()
+                .filter(p -> p.getPrice() == max)
+                .toList();
+    }
+
+    @Override
+    public List<Product> getProductsWithPriceRange(double from, double to) throws StorageException {
+        return concat(this.scatter(shard -> shard.getProductsWithPriceRange(from, to)));
+    }
+
+    @Override
+    public void create(Product product) throws StorageException {
+        this.shard(product.getId()).create(product);
+    }
+
+    /**
+     * Inserts the products of every shard with one batch, the shards in parallel.
+     * If any shard fails, the products already inserted into the other shards are removed with one batch per shard.
+     * The first failure is thrown, failures to remove are attached to it as suppressed.
+     */
+    @Override
+    public void createBatch(List<Product> products) throws StorageException {
+        Map<Integer, List<Product>> byShard = new TreeMap<>();
+        for (Product p : products) {
+            byShard.computeIfAbsent(this.shardOf(p.getId()), k -> new ArrayList<>()).add(p);
+        }
+
+        Map<Integer, Future<Void>> futures = new TreeMap<>();
+        for (Map.Entry<Integer, List<Product>> e : byShard.entrySet()) {
+            ProductStore shard = this.shards.get(e.getKey());
+            futures.put(e.getKey(), this.executor.submit(() -> {
+                shard.createBatch(e.getValue());
+                return null;
+            }));
+        }
+
+        StorageException failure = null;
+        List<Integer> inserted = new ArrayList<>();
+        for (Map.Entry<Integer, Future<Void>> e : futures.entrySet()) {
+            try {
+                await(e.getValue(), "ShardedProductStore.createBatch()");
+                inserted.add(e.getKey());
+            } catch (StorageException ex) {
+                failure = failure == null ? ex : failure;
+            }
+        }
+
+        if (failure != null) {
+            // the IDs were free on their shards before the batch, so removing them only undoes this batch
+            for (int shard : inserted) {
+                try {
+                    this.shards.get(shard).deleteBatch(byShard.get(shard).stream().map(Product::getId).toList());
+                } catch (StorageException e) {
+                    failure.addSuppressed(e);
+                }
+            }
+            throw failure;
+        }
+    }
+
+    /**
+     * Moves the product to another shard when its ID changes owner:
+     * the new product is created first, then the old one is removed.
+     */
+    @Override
+    public void update(int id, Product product) throws StorageException {
+        ProductStore from = this.shard(id);
+        ProductStore to = this.shard(product.getId());
+        if (from == to) {
+            from.update(id, product);
+            return;
+        }
+
+        if (from.getById(id) == null) {
+            return;
+        }
+        to.create(product);
+        from.delete(id);
+    }
+
+    @Override
+    public void increaseCategoryPrice(String categoryName, double percent) throws StorageException {
+        this.scatter(shard -> {
+            shard.increaseCategoryPrice(categoryName, percent);
+            return null;
+        });
+    }
+
+    @Override
+    public void delete(int id) throws StorageException {
+        this.shard(id).delete(id);
+    }
+
+    @Override
+    public void deleteBatch(List<Integer> ids) throws StorageException {
+        Map<ProductStore, List<Integer>> byShard = new HashMap<>();
+        for (int id : ids) {
+            byShard.computeIfAbsent(this.shard(id), k -> new ArrayList<>()).add(id);
+        }
+
+        this.scatter(shard -> {
+            List<Integer> own = byShard.get(shard);
+            if (own != null) {
+                shard.deleteBatch(own);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteAllCategoryProducts(String categoryName) throws StorageException {
+        this.scatter(shard -> {
+            shard.deleteAllCategoryProducts(categoryName);
+            return null;
+        });
+    }
+
+    @Override
+    public void truncate() throws StorageException {
+        this.scatter(shard -> {
+            shard.truncate();
+            return null;
+        });
+    }
+
+    @Override
+    public void close() {
+        this.executor.shutdownNow();
+    }
+
+    private ProductStore shard(int id) {
+        return this.shards.get(this.shardOf(id));
+    }
+
+    /**
+     * Calls all shards in parallel and waits for all of them.
+     * @return Results in shard order.
+     * @throws StorageException throws the first shard failure
+     */
+    private <T> List<T> scatter(ShardCall<T> call) throws StorageException {
+        List<Future<T>> futures = new ArrayList<>(this.shards.size());
+        for (ProductStore shard : this.shards) {
+            futures.add(this.executor.submit(() -> call.call(shard)));
+        }
+
+        List<T> results = new ArrayList<>(futures.size());
+        StorageException failure = null;
+        for (Future<T> f : futures) {
+            try {
+                results.add(await(f, "ShardedProductStore.scatter()"));
+            } catch (StorageException e) {
+                failure = failure == null ? e : failure;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    private static <T> T await(Future<T> future, String operation) throws StorageException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof StorageException se) {
+                throw se;
+            }
+            throw new StorageException(operation, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageException(operation, e);
+        }
+    }
+
+    private static List<Product> concat(List<List<Product>> lists) {
+        List<Product> all = new ArrayList<>();
+        for (List<Product> l : lists) {
+            all.addAll(l);
+        }
+        return all;
+    }
+}
@@ -0,0 +1,101 @@
+package repos;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+
+/**
+ * Data source measuring every statement executed on its connections and feeding {@link SlowQueryLog}.
+ * Measures the time spent waiting for a connection and the execution time of every statement,
+ * and remembers the bound parameters of prepared statements.
+ * For queries the execution time ends when the first rows are available, fetching the rest is not included.
+ */
+public class SlowQueryDataSource implements DataSource {
+    private static final Set<String> EXECUTE_METHODS = Set.of(
+            "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private final DataSource ds;
+    private final SlowQueryLog log;
+
+    public SlowQueryDataSource(DataSource dataSource, SlowQueryLog log) {
+        this.ds = dataSource;
+        this.log = log;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        Connection conn = this.ds.getConnection();
+        long waitNanos = System.nanoTime() - start;
+
+        return proxy(Connection.class, conn, (proxy, method, args) -> {
+            Object result = invoke(conn, method, args);
+            if (result instanceof PreparedStatement stmt && method.getName().equals("prepareStatement")) {
+                return this.measured(PreparedStatement.class, stmt, (String) args[0], waitNanos);
+            }
+            if (result instanceof Statement stmt && method.getName().equals("createStatement")) {
+                return this.measured(Statement.class, stmt, null, waitNanos);
+            }
+            return result;
+        });
+    }
+
+    private <T extends Statement> T measured(Class<T> type, T stmt, String preparedSql, long waitNanos) {
+        SortedMap<Integer, Object> params = new TreeMap<>();
+        boolean[] batch = {false};
+
+        return proxy(type, stmt, (proxy, method, args) -> {
+            String name = method.getName();
+
+            if (name.equals("setNull") && args[0] instanceof Integer index) {
+                // the second argument is the SQL type, not the value
+                params.put(index, null);
+            } else if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                params.put(index, args[1]);
+            } else if (name.equals("clearParameters")) {
+                params.clear();
+            } else if (name.equals("addBatch")) {
+                batch[0] = true;
+            } else if (EXECUTE_METHODS.contains(name)) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : preparedSql;
+                long start = System.nanoTime();
+                try {
+                    return invoke(stmt, method, args);
+                } finally {
+                    long durationNanos = System.nanoTime() - start;
+                    boolean isBatch = batch[0] || name.endsWith("Batch");
+                    this.log.record(this.ds, sql, isBatch ? List.of() : toList(params), durationNanos, waitNanos, !isBatch);
+                }
+            }
+
+            return invoke(stmt, method, args);
+        });
+    }
+
+    private static List<Object> toList(SortedMap<Integer, Object> params) {
+        List<Object> list = new ArrayList<>(params.isEmpty() ? 0 : params.lastKey());
+        for (int i = 1; !params.isEmpty() && i <= params.lastKey(); i++) {
+            list.add(params.get(i));
+        }
+        return list;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
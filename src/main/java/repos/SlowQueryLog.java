@@ -0,0 +1,239 @@
+package repos;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Records statements slower than the threshold into a bounded ring buffer and a rotating log file.
+ * A sampled share of slow statements is explained in the background and the captured plan is attached to the entry.
+ * Queries are re-run with EXPLAIN (ANALYZE, BUFFERS) inside a rolled back transaction,
+ * writes only get a plain EXPLAIN, re-running them would take row locks and fail on unique keys.
+ * So do queries calling sequence functions, the rollback does not undo those.
+ * Statements are fed by {@link SlowQueryDataSource}.
+ */
+public class SlowQueryLog implements AutoCloseable {
+    private static final int EXPLAIN_QUEUE_SIZE = 16;
+    private static final int LOG_FILE_LIMIT = 10 * 1024 * 1024;
+    private static final int LOG_FILE_COUNT = 5;
+    // side effects a rollback does not undo
+    private static final List<String> NON_TRANSACTIONAL_FUNCTIONS = List.of("nextval", "setval");
+
+    public static final class Entry {
+        private final long seq;
+        private final Instant at;
+        private final String sql;
+        private final List<Object> params;
+        private final long durationNanos;
+        private final long connectionWaitNanos;
+        private volatile String plan;
+
+        private Entry(long seq, String sql, List<Object> params, long durationNanos, long connectionWaitNanos) {
+            this.seq = seq;
+            this.at = Instant.now();
+            this.sql = sql;
+            this.params = params;
+            this.durationNanos = durationNanos;
+            this.connectionWaitNanos = connectionWaitNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("#%d %s slow query %.1f ms (connection wait %.1f ms): %s %s",
+                    this.seq, this.at, this.durationNanos / 1e6, this.connectionWaitNanos / 1e6, this.sql, this.params);
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public List<Object> getParams() {
+            return params;
+        }
+
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        public long getConnectionWaitNanos() {
+            return connectionWaitNanos;
+        }
+
+        /**
+         * @return Captured plan, null if the entry was not sampled or the plan is not ready yet.
+         */
+        public String getPlan() {
+            return plan;
+        }
+    }
+
+    private final long thresholdNanos;
+    private final double explainSampleRate;
+    private final Entry[] ring;
+    private final AtomicLong seq = new AtomicLong();
+    private final Logger logger;
+    private final Handler fileHandler;
+    private final ThreadPoolExecutor explainer;
+
+    /**
+     * @param thresholdMillis   Statements running longer (including connection wait) are recorded.
+     * @param explainSampleRate Share of recorded statements to explain, from 0 to 1.
+     * @param capacity          Ring buffer size.
+     * @param logFilePattern    {@link FileHandler} pattern of rotating log files, null to log into the buffer only.
+     * @throws IOException throws when the log file cannot be opened
+     */
+    public SlowQueryLog(long thresholdMillis, double explainSampleRate, int capacity, String logFilePattern)
+            throws IOException {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.explainSampleRate = explainSampleRate;
+        this.ring = new Entry[capacity];
+
+        this.logger = Logger.getAnonymousLogger();
+        this.logger.setUseParentHandlers(false);
+        if (logFilePattern != null) {
+            this.fileHandler = new FileHandler(logFilePattern, LOG_FILE_LIMIT, LOG_FILE_COUNT, true);
+            this.fileHandler.setFormatter(new Formatter() {
+                @Override
+                public String format(LogRecord record) {
+                    return record.getMessage() + System.lineSeparator();
+                }
+            });
+            this.logger.addHandler(this.fileHandler);
+        } else {
+            this.fileHandler = null;
+        }
+
+        // a single background thread, explains over the queue limit are skipped rather than piled up
+        this.explainer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(EXPLAIN_QUEUE_SIZE), r -> {
+                    Thread t = new Thread(r, "slow-query-explain");
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    /**
+     * Creates the log configured by system properties:
+     * slowQuery.thresholdMs (200), slowQuery.explainRate (0.1), slowQuery.capacity (256)
+     * and slowQuery.file (slow-queries.%g.log, empty to disable the file).
+     * @return Slow query log.
+     * @throws IOException throws when the log file cannot be opened
+     */
+    public static SlowQueryLog fromSystemProperties() throws IOException {
+        String file = System.getProperty("slowQuery.file", "slow-queries.%g.log");
+        return new SlowQueryLog(
+                Long.getLong("slowQuery.thresholdMs", 200),
+                Double.parseDouble(System.getProperty("slowQuery.explainRate", "0.1")),
+                Integer.getInteger("slowQuery.capacity", 256),
+                file.isEmpty() ? null : file);
+    }
+
+    /**
+     * Records the statement if it is slow.
+     * @param dataSource          Data source the statement ran on, sampled statements are explained there.
+     * @param sql                 SQL.
+     * @param params              Bound parameters, empty for batches and plain statements.
+     * @param durationNanos       Execution time.
+     * @param connectionWaitNanos Time spent waiting for the connection.
+     * @param explainable         Whether the statement may be re-run with EXPLAIN.
+     */
+    public void record(DataSource dataSource, String sql, List<Object> params, long durationNanos,
+                       long connectionWaitNanos, boolean explainable) {
+        if (durationNanos + connectionWaitNanos < this.thresholdNanos) {
+            return;
+        }
+
+        long n = this.seq.incrementAndGet();
+        Entry entry = new Entry(n, sql, params, durationNanos, connectionWaitNanos);
+        synchronized (this.ring) {
+            this.ring[(int) (n % this.ring.length)] = entry;
+        }
+        this.logger.info(entry.toString());
+
+        if (explainable && isExplainable(sql) && ThreadLocalRandom.current().nextDouble() < this.explainSampleRate) {
+            this.explainer.execute(() -> this.explain(dataSource, entry));
+        }
+    }
+
+    /**
+     * @return Recorded entries from the oldest to the newest.
+     */
+    public List<Entry> recent() {
+        List<Entry> entries = new ArrayList<>(this.ring.length);
+        synchronized (this.ring) {
+            for (Entry e : this.ring) {
+                if (e != null) {
+                    entries.add(e);
+                }
+            }
+        }
+        entries.sort(Comparator.comparingLong(e -> e.seq));
+        return entries;
+    }
+
+    @Override
+    public void close() {
+        this.explainer.shutdownNow();
+        if (this.fileHandler != null) {
+            this.fileHandler.close();
+        }
+    }
+
+    private void explain(DataSource dataSource, Entry entry) {
+        StringBuilder plan = new StringBuilder();
+
+        try (Connection conn = dataSource.getConnection()) {
+            // a query may still write through functions, never let those writes take effect
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(explainPrefix(entry.sql) + entry.sql)) {
+                for (int i = 0; i < entry.params.size(); i++) {
+                    stmt.setObject(i + 1, entry.params.get(i));
+                }
+
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    plan.append(rs.getString(1)).append(System.lineSeparator());
+                }
+            } finally {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            plan.append("EXPLAIN failed: ").append(e.getMessage()).append(System.lineSeparator());
+        }
+
+        entry.plan = plan.toString();
+        this.logger.info(String.format("#%d plan:%n%s", entry.seq, entry.plan));
+    }
+
+    private static boolean isExplainable(String sql) {
+        String head = head(sql);
+        return head.startsWith("select") || head.startsWith("insert")
+                || head.startsWith("update") || head.startsWith("delete");
+    }
+
+    private static String explainPrefix(String sql) {
+        String head = head(sql);
+        boolean analyze = head.startsWith("select")
+                && NON_TRANSACTIONAL_FUNCTIONS.stream().noneMatch(head::contains);
+        return analyze ? "explain (analyze, buffers) " : "explain ";
+    }
+
+    private static String head(String sql) {
+        return sql.stripLeading().toLowerCase(Locale.ROOT);
+    }
+}
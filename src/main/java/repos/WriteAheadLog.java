@@ -0,0 +1,145 @@
+package repos;
+
+import entities.Product;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of {@link InMemoryProductStore} changes.
+ * Every record holds all changes of one store operation: removed IDs first, then put products.
+ * Record layout: payload length, payload CRC32, payload.
+ * A torn or corrupted tail (e.g. after a crash in the middle of a write) is cut off on replay.
+ */
+final class WriteAheadLog implements Closeable {
+    private static final int HEADER_SIZE = 8;
+
+    private final FileChannel channel;
+    private final boolean sync;
+
+    WriteAheadLog(Path path, boolean sync) throws IOException {
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.sync = sync;
+    }
+
+    /**
+     * Applies all valid records in the log order and positions the log for appending.
+     * @param remove Called for every removed ID.
+     * @param put    Called for every put product.
+     * @throws IOException throws when I/O error
+     */
+    synchronized void replay(IntConsumer remove, Consumer<Product> put) throws IOException {
+        this.channel.position(0);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(this.channel)));
+
+        long valid = 0;
+        long fileSize = this.channel.size();
+        while (valid + HEADER_SIZE <= fileSize) {
+            int length = in.readInt();
+            int crc = in.readInt();
+            if (length < 0 || valid + HEADER_SIZE + length > fileSize) {
+                break;
+            }
+
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            if (checksum(payload) != crc) {
+                break;
+            }
+
+            DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+            int removes = record.readInt();
+            for (int i = 0; i < removes; i++) {
+                remove.accept(record.readInt());
+            }
+            int puts = record.readInt();
+            for (int i = 0; i < puts; i++) {
+                put.accept(new Product(record.readInt(), record.readUTF(), record.readDouble(), record.readUTF()));
+            }
+
+            valid += HEADER_SIZE + length;
+        }
+
+        this.channel.truncate(valid);
+        this.channel.position(valid);
+    }
+
+    /**
+     * Durably appends one record before the store applies it.
+     * @param removes Removed IDs.
+     * @param puts    Put products.
+     * @throws IOException throws when I/O error
+     */
+    synchronized void append(int[] removes, List<Product> puts) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0);
+        out.writeInt(0);
+
+        out.writeInt(removes.length);
+        for (int id : removes) {
+            out.writeInt(id);
+        }
+        out.writeInt(puts.size());
+        for (Product p : puts) {
+            out.writeInt(p.getId());
+            out.writeUTF(p.getGood());
+            out.writeDouble(p.getPrice());
+            out.writeUTF(p.getCategoryName());
+        }
+
+        ByteBuffer buf = ByteBuffer.wrap(bytes.toByteArray());
+        int length = buf.limit() - HEADER_SIZE;
+        buf.putInt(0, length);
+        buf.putInt(4, checksum(buf.array(), HEADER_SIZE, length));
+
+        long start = this.channel.position();
+        try {
+            while (buf.hasRemaining()) {
+                this.channel.write(buf);
+            }
+            if (this.sync) {
+                this.channel.force(false);
+            }
+        } catch (IOException e) {
+            // do not leave a partial record in front of the next one
+            this.channel.truncate(start);
+            this.channel.position(start);
+            throw e;
+        }
+    }
+
+    /**
+     * Drops all records, used when the store is truncated.
+     * @throws IOException throws when I/O error
+     */
+    synchronized void reset() throws IOException {
+        this.channel.truncate(0);
+        this.channel.position(0);
+        this.channel.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        this.channel.close();
+    }
+
+    private static int checksum(byte[] bytes) {
+        return checksum(bytes, 0, bytes.length);
+    }
+
+    private static int checksum(byte[] bytes, int off, int len) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, off, len);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,127 @@
+import exceptions.OverloadException;
+import exceptions.StorageException;
+import org.junit.*;
+import repos.AdmissionControl;
+import repos.AdmissionControl.Limit;
+import repos.AdmissionControl.OperationClass;
+import repos.AdmissionControl.Permit;
+
+import java.util.List;
+import java.util.concurrent.*;
+
+public class AdmissionControlTest {
+    private ExecutorService executor;
+
+    @Before
+    public void beforeEach() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void afterEach() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void acquire_FreeSlot() throws StorageException {
+        AdmissionControl ac = AdmissionControl.forPool(4);
+        try (Permit ignored = ac.acquire(OperationClass.READ, "test")) {
+            Assert.assertEquals(0, ac.getRejectedCount(OperationClass.READ));
+        }
+    }
+
+    @Test(expected = OverloadException.class)
+    public void acquire_QueueFull() throws StorageException {
+        AdmissionControl ac = new AdmissionControl(1,
+                new Limit(1, 0, 0), new Limit(1, 0, 0), new Limit(1, 0, 0));
+        try (Permit ignored = ac.acquire(OperationClass.READ, "test")) {
+            ac.acquire(OperationClass.READ, "test");
+        }
+    }
+
+    @Test
+    public void acquire_DeadlineExceeded() throws StorageException {
+        AdmissionControl ac = new AdmissionControl(1,
+                new Limit(1, 1, 50), new Limit(1, 1, 50), new Limit(1, 1, 50));
+        try (Permit ignored = ac.acquire(OperationClass.WRITE, "test")) {
+            ac.acquire(OperationClass.WRITE, "test");
+            Assert.fail("deadline must be exceeded");
+        } catch (OverloadException e) {
+            Assert.assertEquals(3, e.getCode());
+            Assert.assertEquals(1, ac.getRejectedCount(OperationClass.WRITE));
+        }
+    }
+
+    @Test
+    public void acquire_ClassLimitDoesNotBlockOtherClasses() throws StorageException {
+        AdmissionControl ac = new AdmissionControl(2,
+                new Limit(2, 0, 0), new Limit(2, 0, 0), new Limit(1, 0, 0));
+        try (Permit ignored = ac.acquire(OperationClass.BULK, "test")) {
+            try (Permit ignored2 = ac.acquire(OperationClass.READ, "test")) {
+                Assert.assertEquals(0, ac.getRejectedCount(OperationClass.READ));
+            }
+        }
+    }
+
+    @Test
+    public void acquire_SeveralSlots() throws StorageException {
+        AdmissionControl ac = new AdmissionControl(4,
+                new Limit(4, 0, 0), new Limit(4, 0, 0), new Limit(3, 0, 0));
+        try (Permit ignored = ac.acquire(OperationClass.BULK, 3, "test")) {
+            try (Permit ignored2 = ac.acquire(OperationClass.READ, "test")) {
+                ac.acquire(OperationClass.READ, "test");
+                Assert.fail("all slots must be taken");
+            } catch (OverloadException e) {
+                Assert.assertEquals(1, ac.getRejectedCount(OperationClass.READ));
+            }
+        }
+        try (Permit ignored = ac.acquire(OperationClass.READ, 4, "test")) {
+            Assert.assertEquals(0, ac.getQueuedCount(OperationClass.READ));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void acquire_MoreSlotsThanClassLimit() throws StorageException {
+        AdmissionControl ac = AdmissionControl.forPool(4);
+        ac.acquire(OperationClass.BULK, 2, "test");
+    }
+
+    @Test
+    public void release_ReadsHavePriority() throws Exception {
+        AdmissionControl ac = new AdmissionControl(1,
+                new Limit(1, 10, 5000), new Limit(1, 10, 5000), new Limit(1, 10, 5000));
+        List<OperationClass> order = new CopyOnWriteArrayList<>();
+
+        Permit held = ac.acquire(OperationClass.BULK, "test");
+
+        Future<?> bulk = executor.submit(() -> this.acquireAndRecord(ac, OperationClass.BULK, order));
+        this.awaitQueued(ac, OperationClass.BULK);
+        Future<?> read = executor.submit(() -> this.acquireAndRecord(ac, OperationClass.READ, order));
+        this.awaitQueued(ac, OperationClass.READ);
+
+        held.close();
+        held.close();
+        bulk.get(5, TimeUnit.SECONDS);
+        read.get(5, TimeUnit.SECONDS);
+
+        Assert.assertEquals(List.of(OperationClass.READ, OperationClass.BULK), order);
+    }
+
+    private Void acquireAndRecord(AdmissionControl ac, OperationClass opClass, List<OperationClass> order)
+            throws StorageException {
+        try (Permit ignored = ac.acquire(opClass, "test")) {
+            order.add(opClass);
+        }
+        return null;
+    }
+
+    private void awaitQueued(AdmissionControl ac, OperationClass opClass) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (ac.getQueuedCount(opClass) == 0) {
+            if (System.nanoTime() > deadline) {
+                Assert.fail(opClass + " waiter was not queued");
+            }
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+import entities.Product;
+import exceptions.StorageException;
+import org.junit.*;
+import repos.InMemoryProductStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class InMemoryProductStoreTest {
+    private Path logFile;
+
+    @Before
+    public void beforeEach() throws IOException {
+        logFile = Files.createTempFile("products", ".wal");
+    }
+
+    @After
+    public void afterEach() throws IOException {
+        Files.deleteIfExists(logFile);
+    }
+
+    @Test
+    public void writeAheadLog_Replay() throws StorageException {
+        try (InMemoryProductStore store = new InMemoryProductStore(logFile, false)) {
+            store.createBatch(Arrays.asList(
+                    new Product(1, "samsung", 10.0, "tv"),
+                    new Product(2, "lg", 20.0, "tv"),
+                    new Product(3, "bosch", 30.0, "fridge")));
+            store.update(1, new Product(4, "samsung", 15.0, "tv"));
+            store.increaseCategoryPrice("tv", 0.5);
+            store.deleteAllCategoryProducts("fridge");
+        }
+
+        try (InMemoryProductStore store = new InMemoryProductStore(logFile, false)) {
+            List<Product> products = store.getAll().stream()
+                    .sorted(Comparator.comparing(Product::getId))
+                    .toList();
+
+            Assert.assertEquals(Arrays.asList(
+                    new Product(2, "lg", 30.0, "tv"),
+                    new Product(4, "samsung", 22.5, "tv")), products);
+            Assert.assertEquals(List.of(new Product(2, "lg", 30.0, "tv")), store.getMostExpensive());
+        }
+    }
+
+    @Test
+    public void writeAheadLog_TornTail() throws StorageException, IOException {
+        try (InMemoryProductStore store = new InMemoryProductStore(logFile, true)) {
+            store.create(new Product(1, "1", 10.0, "all"));
+        }
+        // emulate a crash in the middle of the next record
+        Files.write(logFile, new byte[] {0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+
+        try (InMemoryProductStore store = new InMemoryProductStore(logFile, false)) {
+            Assert.assertEquals(1, store.getAll().size());
+            store.create(new Product(2, "2", 20.0, "all"));
+        }
+
+        try (InMemoryProductStore store = new InMemoryProductStore(logFile, false)) {
+            Assert.assertEquals(2, store.getAll().size());
+        }
+    }
+
+    @Test
+    public void writeAheadLog_Truncate() throws StorageException, IOException {
+        try (InMemoryProductStore store = new InMemoryProductStore(logFile, false)) {
+            store.create(new Product(1, "1", 10.0, "all"));
+            store.truncate();
+        }
+
+        Assert.assertEquals(0, Files.size(logFile));
+    }
+
+    @Test
+    public void concurrentWrites() throws Exception {
+        final int threads = 8;
+        final int perThread = 2000;
+
+        InMemoryProductStore store = new InMemoryProductStore();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int base = t * perThread;
+            futures.add(executor.submit(() -> {
+                for (int i = 1; i <= perThread; i++) {
+                    store.create(new Product(base + i, "p", i, "c" + (i % 3)));
+                    if (i % 2 == 0) {
+                        store.delete(base + i);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> f : futures) {
+            f.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        Assert.assertEquals(threads * perThread / 2, store.getAll().size());
+        Assert.assertEquals(threads, store.getMostExpensive().size());
+        Assert.assertEquals(threads * 10, store.getProductsWithPriceRange(1.0, 20.0).size());
+    }
+}
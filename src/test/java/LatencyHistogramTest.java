@@ -0,0 +1,17 @@
+import org.junit.*;
+
+public class LatencyHistogramTest {
+    @Test
+    public void getPercentileMicros_Uniform() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.recordNanos(i * 1000L);
+        }
+
+        Assert.assertEquals(1000, histogram.getCount());
+        Assert.assertEquals(1000, histogram.getMaxMicros());
+        // buckets are accurate to 1/16 of the value
+        Assert.assertEquals(500, histogram.getPercentileMicros(50), 500 / 16.0);
+        Assert.assertEquals(990, histogram.getPercentileMicros(99), 990 / 16.0);
+    }
+}
@@ -0,0 +1,55 @@
+import exceptions.ArgsException;
+import org.junit.*;
+
+public class LoadConfigTest {
+    private static final String[] DB_ARGS = {"jdbc:postgresql://127.0.0.1:5432/postgres", "postgres", "pass"};
+
+    @Test
+    public void parse_WithoutLoadMode() throws ArgsException {
+        Config cfg = Config.parse(DB_ARGS);
+        Assert.assertFalse(cfg.isLoadMode());
+    }
+
+    @Test
+    public void parse_DefaultMix() throws ArgsException {
+        Config cfg = Config.parse(withDbArgs("load", "1000", "8", "30"));
+
+        Assert.assertTrue(cfg.isLoadMode());
+        LoadConfig load = cfg.getLoadConfig();
+        Assert.assertEquals(1000, load.getProducts());
+        Assert.assertEquals(8, load.getThreads());
+        Assert.assertEquals(30, load.getSeconds());
+        Assert.assertEquals(4, load.getMix().size());
+    }
+
+    @Test
+    public void parse_CustomMix() throws ArgsException {
+        LoadConfig load = LoadConfig.parse(new String[] {"10", "2", "5", "getById=3,update=1"});
+
+        Assert.assertEquals(2, load.getMix().size());
+        Assert.assertEquals(3, (int) load.getMix().get(LoadGenerator.Operation.GET_BY_ID));
+        Assert.assertEquals(1, (int) load.getMix().get(LoadGenerator.Operation.UPDATE));
+    }
+
+    @Test(expected = ArgsException.class)
+    public void parse_UnknownOperation() throws ArgsException {
+        LoadConfig.parse(new String[] {"10", "2", "5", "scan=1"});
+    }
+
+    @Test(expected = ArgsException.class)
+    public void parse_NonPositiveThreads() throws ArgsException {
+        LoadConfig.parse(new String[] {"10", "0", "5"});
+    }
+
+    @Test(expected = ArgsException.class)
+    public void parse_UnknownMode() throws ArgsException {
+        Config.parse(withDbArgs("bench"));
+    }
+
+    private static String[] withDbArgs(String... args) {
+        String[] all = new String[DB_ARGS.length + args.length];
+        System.arraycopy(DB_ARGS, 0, all, 0, DB_ARGS.length);
+        System.arraycopy(args, 0, all, DB_ARGS.length, args.length);
+        return all;
+    }
+}
@@ -2,25 +2,63 @@ import entities.Product;
 import exceptions.StorageException;
 import org.jetbrains.annotations.NotNull;
 import org.junit.*;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import repos.InMemoryProductStore;
 import repos.ProductRepo;
+import repos.ProductStore;
+import repos.ShardedProductStore;
 
 import java.util.*;
+import java.util.concurrent.*;
 
+@RunWith(Parameterized.class)
 public class ProductRepoTest {
-    private static ProductRepo repo;
-
-    @BeforeClass
-    public static void before() throws Exception {
-        String[] args = new String[] {"jdbc:postgresql://127.0.0.1:5432/postgres", "postgres", "pass"};
-        Config cfg = Config.parse(args);
-        Pool pool = new Pool(cfg.getDbUrl(), cfg.getDbUser(), cfg.getDbPass());
-        Utils.createTable(pool);
-        repo = new ProductRepo(pool);
+    private static final String[] DB_URLS = {
+            "jdbc:postgresql://127.0.0.1:5432/postgres",
+            "jdbc:postgresql://127.0.0.1:5433/postgres",
+            "jdbc:postgresql://127.0.0.1:5434/postgres",
+    };
+    private static final List<Pool> pools = new ArrayList<>();
+
+    @Parameterized.Parameter
+    public String engine;
+
+    private ProductStore repo;
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> engines() {
+        return Arrays.asList(new Object[][] {{"postgres"}, {"memory"}, {"sharded-postgres"}, {"sharded-memory"}});
+    }
+
+    @Before
+    public void beforeEach() throws Exception {
+        switch (engine) {
+            case "memory" -> repo = new InMemoryProductStore();
+            case "sharded-memory" -> repo = new ShardedProductStore(Arrays.asList(
+                    new InMemoryProductStore(), new InMemoryProductStore(), new InMemoryProductStore()));
+            case "sharded-postgres" -> repo = ShardedProductStore.ofDataSources(pools(DB_URLS.length));
+            default -> repo = new ProductRepo(pools(1).get(0));
+        }
+    }
+
+    private static List<Pool> pools(int amount) throws Exception {
+        while (pools.size() < amount) {
+            String[] args = new String[] {DB_URLS[pools.size()], "postgres", "pass"};
+            Config cfg = Config.parse(args);
+            Pool pool = new Pool(cfg.getDbUrl(), cfg.getDbUser(), cfg.getDbPass());
+            Utils.createTable(pool);
+            pools.add(pool);
+        }
+        return pools.subList(0, amount);
     }
 
     @After
     public void afterEach() throws Exception {
         repo.truncate();
+        if (repo instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
     }
 
     @Test
@@ -167,6 +205,59 @@ public class ProductRepoTest {
         repo.createBatch(products);
     }
 
+    @Test
+    public void nextId_AboveCallerChosenIds() throws StorageException {
+        // only shard 0 generates IDs and it knows its own products only, see ShardedProductStore.nextId()
+        Assume.assumeFalse(engine.startsWith("sharded"));
+        // far above the sequence, so the first block must skip the stored IDs
+        int base = 10_000_000;
+        this.fillWith(new Product(base, "a", 1.0, "all"), new Product(base + 1, "b", 2.0, "all"));
+
+        int id = repo.nextId();
+
+        Assert.assertTrue(id > base + 1);
+        repo.create(new Product(id, "generated", 3.0, "all"));
+    }
+
+    @Test
+    public void nextId_UniqueAcrossThreads() throws Exception {
+        final int threads = 8;
+        final int perThread = 500;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<List<Integer>>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                List<Integer> ids = new ArrayList<>(perThread);
+                for (int i = 0; i < perThread; i++) {
+                    ids.add(repo.nextId());
+                }
+                return ids;
+            }));
+        }
+
+        Set<Integer> ids = new HashSet<>();
+        for (Future<List<Integer>> f : futures) {
+            ids.addAll(f.get(30, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        Assert.assertEquals(threads * perThread, ids.size());
+    }
+
+    @Test
+    public void createBatch_GeneratedIds() throws StorageException {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            products.add(new Product(repo.nextId(), "generated", i, "all"));
+        }
+
+        repo.createBatch(products);
+
+        Assert.assertEquals(products.get(9), repo.getById(products.get(9).getId()));
+        Assert.assertEquals(10, repo.getAll().size());
+    }
+
     @Test
     public void update() throws StorageException {
         this.fillProductsTable(5);
@@ -215,6 +306,16 @@ public class ProductRepoTest {
         Assert.assertEquals(0, products.size());
     }
 
+    @Test
+    public void deleteBatch() throws StorageException {
+        this.fillProductsTable(5);
+
+        repo.deleteBatch(Arrays.asList(2, 4, 42));
+
+        List<Integer> ids = repo.getAll().stream().map(Product::getId).sorted().toList();
+        Assert.assertEquals(Arrays.asList(1, 3, 5), ids);
+    }
+
     @Test
     public void deleteAllCategoryProducts() throws StorageException {
         String category = "tv";
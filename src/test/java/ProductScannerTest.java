@@ -0,0 +1,129 @@
+import entities.Product;
+import exceptions.StorageException;
+import org.junit.*;
+import exceptions.OverloadException;
+import repos.AdmissionControl;
+import repos.AdmissionControl.Limit;
+import repos.AdmissionControl.OperationClass;
+import repos.ProductRepo;
+import repos.ProductScanner;
+import repos.ProductScanner.Split;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+public class ProductScannerTest {
+    private static Pool pool;
+    private static ProductRepo repo;
+    private static ProductScanner scanner;
+
+    @BeforeClass
+    public static void before() throws Exception {
+        String[] args = new String[] {"jdbc:postgresql://127.0.0.1:5432/postgres", "postgres", "pass"};
+        Config cfg = Config.parse(args);
+        pool = new Pool(cfg.getDbUrl(), cfg.getDbUser(), cfg.getDbPass());
+        Utils.createTable(pool);
+        repo = new ProductRepo(pool);
+        scanner = new ProductScanner(pool, AdmissionControl.forPool(pool.getMaximumPoolSize()));
+    }
+
+    @After
+    public void afterEach() throws Exception {
+        repo.truncate();
+    }
+
+    @Test
+    public void stream_MinMax() throws StorageException {
+        List<Product> expectedProducts = this.fillProductsTable(1000, 1);
+
+        List<Product> products = scanner.stream(4, Split.MIN_MAX).toList();
+
+        Assert.assertEquals(expectedProducts, products.stream()
+                .sorted(Comparator.comparing(Product::getId))
+                .toList());
+    }
+
+    @Test
+    public void stream_SampledSparseIds() throws StorageException {
+        List<Product> expectedProducts = this.fillProductsTable(1000, 7919);
+
+        List<Product> products = scanner.stream(4, Split.SAMPLED).toList();
+
+        Assert.assertEquals(expectedProducts, products.stream()
+                .sorted(Comparator.comparing(Product::getId))
+                .toList());
+    }
+
+    @Test
+    public void stream_EmptyTable() throws StorageException {
+        Assert.assertEquals(0, scanner.stream(4, Split.MIN_MAX).count());
+        Assert.assertEquals(0, scanner.stream(4, Split.SAMPLED).count());
+    }
+
+    @Test
+    public void scan_PerSliceConsumers() throws StorageException {
+        this.fillProductsTable(1000, 1);
+        AtomicInteger total = new AtomicInteger();
+
+        List<ProductScanner.Slice> slices = scanner.scan(4, Split.MIN_MAX, slice -> new Consumer<>() {
+            private int count;
+
+            @Override
+            public void accept(Product product) {
+                if (++count == 250) {
+                    total.addAndGet(count);
+                }
+            }
+        });
+
+        Assert.assertEquals(4, slices.size());
+        Assert.assertEquals(1000, total.get());
+    }
+
+    @Test
+    public void scan_SlicesCappedByBulkLimit() throws StorageException {
+        this.fillProductsTable(1000, 1);
+        AdmissionControl ac = new AdmissionControl(pool.getMaximumPoolSize(),
+                new Limit(10, 0, 0), new Limit(10, 0, 0), new Limit(3, 0, 0));
+        ProductScanner small = new ProductScanner(pool, ac);
+
+        List<ProductScanner.Slice> slices = small.scan(8, Split.MIN_MAX, slice -> product -> {});
+
+        Assert.assertEquals(2, slices.size());
+        Assert.assertTrue(small.defaultSlices() <= 2);
+    }
+
+    @Test
+    public void stream_DefaultSlices() throws StorageException {
+        List<Product> expectedProducts = this.fillProductsTable(1000, 1);
+
+        List<Product> products = scanner.stream(Split.SAMPLED).toList();
+
+        Assert.assertEquals(expectedProducts, products.stream()
+                .sorted(Comparator.comparing(Product::getId))
+                .toList());
+    }
+
+    @Test(expected = OverloadException.class)
+    public void scan_RejectedByAdmissionControl() throws StorageException {
+        AdmissionControl ac = new AdmissionControl(2,
+                new Limit(2, 0, 0), new Limit(2, 0, 0), new Limit(1, 0, 0));
+        ProductScanner limited = new ProductScanner(pool, ac);
+
+        try (AdmissionControl.Permit ignored = ac.acquire(OperationClass.BULK, "test")) {
+            limited.scan(2, Split.MIN_MAX, slice -> product -> {});
+        }
+    }
+
+    private List<Product> fillProductsTable(int amount, int idStep) throws StorageException {
+        List<Product> products = new ArrayList<>(amount);
+        for (int i = 1; i <= amount; i++) {
+            products.add(new Product(i * idStep, String.valueOf(i), i * 10.0, "all"));
+        }
+
+        repo.createBatch(products);
+
+        return products;
+    }
+}
@@ -0,0 +1,60 @@
+import org.junit.*;
+import repos.SequenceIdAllocator;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public class SequenceIdAllocatorTest {
+    private static final String SEQUENCE = "products_id_seq_test";
+
+    private static Pool pool;
+
+    @BeforeClass
+    public static void before() throws Exception {
+        String[] args = new String[] {"jdbc:postgresql://127.0.0.1:5432/postgres", "postgres", "pass"};
+        Config cfg = Config.parse(args);
+        pool = new Pool(cfg.getDbUrl(), cfg.getDbUser(), cfg.getDbPass());
+        Utils.createTable(pool);
+    }
+
+    @After
+    public void afterEach() throws SQLException {
+        this.execute("drop sequence if exists " + SEQUENCE);
+        this.execute("truncate products");
+    }
+
+    @Test
+    public void next_ConsecutiveWithinBlock() throws SQLException {
+        this.execute("create sequence " + SEQUENCE + " increment by 10");
+        SequenceIdAllocator ids = new SequenceIdAllocator(pool, SEQUENCE, 10);
+
+        int first = ids.next();
+        for (int i = 1; i < 10; i++) {
+            Assert.assertEquals(first + i, ids.next());
+        }
+        Assert.assertEquals(first + 10, ids.next());
+    }
+
+    @Test
+    public void next_FirstBlockAboveStoredIds() throws SQLException {
+        this.execute("insert into products(id, good, price, category_name) values (55, 'stored', 1.0, 'all')");
+        this.execute("create sequence " + SEQUENCE + " increment by 10");
+        SequenceIdAllocator ids = new SequenceIdAllocator(pool, SEQUENCE, 10);
+
+        Assert.assertTrue(ids.next() > 55);
+    }
+
+    @Test(expected = SQLException.class)
+    public void next_IncrementDiffersFromBlockSize() throws SQLException {
+        this.execute("create sequence " + SEQUENCE + " increment by 1");
+        SequenceIdAllocator ids = new SequenceIdAllocator(pool, SEQUENCE, 10);
+
+        ids.next();
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            conn.createStatement().executeUpdate(sql);
+        }
+    }
+}
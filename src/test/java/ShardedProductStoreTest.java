@@ -0,0 +1,139 @@
+import entities.Product;
+import exceptions.StorageException;
+import org.junit.*;
+import repos.InMemoryProductStore;
+import repos.ShardedProductStore;
+
+import java.util.*;
+
+public class ShardedProductStoreTest {
+    private List<InMemoryProductStore> shards;
+    private ShardedProductStore store;
+
+    @Before
+    public void beforeEach() {
+        shards = Arrays.asList(new InMemoryProductStore(), new InMemoryProductStore(), new InMemoryProductStore());
+        store = new ShardedProductStore(shards);
+    }
+
+    @After
+    public void afterEach() {
+        store.close();
+    }
+
+    @Test
+    public void createBatch_SpreadsOverShards() throws StorageException {
+        List<Product> products = new ArrayList<>();
+        for (int i = 1; i <= 3000; i++) {
+            products.add(new Product(i, String.valueOf(i), i, "all"));
+        }
+
+        store.createBatch(products);
+
+        for (int i = 0; i < shards.size(); i++) {
+            List<Product> stored = shards.get(i).getAll();
+            // roughly a third each
+            Assert.assertTrue(stored.size() > 800 && stored.size() < 1200);
+            for (Product p : stored) {
+                Assert.assertEquals(i, store.shardOf(p.getId()));
+            }
+        }
+    }
+
+    @Test
+    public void createBatch_FailedShardRollsBackOthers() throws StorageException {
+        int taken = firstIdOfShard(0, 1);
+        store.create(new Product(taken, "taken", 1.0, "all"));
+
+        List<Product> batch = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            batch.add(new Product(taken + i, "new", 2.0, "all"));
+        }
+        batch.add(new Product(taken, "duplicate", 3.0, "all"));
+
+        try {
+            store.createBatch(batch);
+            Assert.fail("duplicate must be rejected");
+        } catch (StorageException ignored) {
+        }
+
+        Assert.assertEquals(List.of(new Product(taken, "taken", 1.0, "all")), store.getAll());
+    }
+
+    @Test
+    public void createBatch_FailedUndoSuppressed() throws StorageException {
+        InMemoryProductStore failingUndo = new InMemoryProductStore() {
+            @Override
+            public void deleteBatch(List<Integer> ids) throws StorageException {
+                throw new StorageException("deleteBatch()", new IllegalStateException("undo failed"));
+            }
+        };
+        store.close();
+        shards = Arrays.asList(failingUndo, new InMemoryProductStore(), new InMemoryProductStore());
+        store = new ShardedProductStore(shards);
+
+        int taken = firstIdOfShard(1, 1);
+        store.create(new Product(taken, "taken", 1.0, "all"));
+
+        List<Product> batch = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            batch.add(new Product(taken + i, "new", 2.0, "all"));
+        }
+        batch.add(new Product(taken, "duplicate", 3.0, "all"));
+
+        try {
+            store.createBatch(batch);
+            Assert.fail("duplicate must be rejected");
+        } catch (StorageException e) {
+            Assert.assertEquals(1, e.getSuppressed().length);
+        }
+
+        // the other shard is still rolled back
+        Assert.assertEquals(0, shards.get(2).getAll().size());
+        Assert.assertFalse(shards.get(0).getAll().isEmpty());
+    }
+
+    @Test
+    public void update_MovesBetweenShards() throws StorageException {
+        int id = firstIdOfShard(0, 1);
+        int newId = firstIdOfShard(1, 1);
+        store.create(new Product(id, "old", 1.0, "all"));
+
+        Product expected = new Product(newId, "new", 2.0, "all");
+        store.update(id, expected);
+
+        Assert.assertNull(store.getById(id));
+        Assert.assertEquals(expected, store.getById(newId));
+        Assert.assertEquals(List.of(expected), shards.get(1).getAll());
+        Assert.assertEquals(0, shards.get(0).getAll().size());
+    }
+
+    @Test
+    public void getMostExpensive_GlobalMax() throws StorageException {
+        Product a = new Product(firstIdOfShard(0, 1), "a", 50.0, "all");
+        Product b = new Product(firstIdOfShard(1, 1), "b", 50.0, "all");
+        Product c = new Product(firstIdOfShard(2, 1), "c", 10.0, "all");
+        store.createBatch(Arrays.asList(a, b, c));
+
+        List<Product> products = store.getMostExpensive().stream()
+                .sorted(Comparator.comparing(Product::getPrice).thenComparing(Product::getGood))
+                .toList();
+
+        Assert.assertEquals(Arrays.asList(a, b), products);
+    }
+
+    @Test
+    public void nextId_FromFirstShard() throws StorageException {
+        shards.get(0).create(new Product(500, "max", 1.0, "all"));
+
+        Assert.assertEquals(501, store.nextId());
+    }
+
+    private int firstIdOfShard(int shard, int from) {
+        int id = from;
+        while (store.shardOf(id) != shard) {
+            id++;
+        }
+        return id;
+    }
+}
@@ -0,0 +1,187 @@
+import org.junit.*;
+import repos.DataSource;
+import repos.SlowQueryDataSource;
+import repos.SlowQueryLog;
+
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+public class SlowQueryLogTest {
+    private static final long SLOW_MILLIS = 30;
+    private static final String PLAN = "Seq Scan on products";
+
+    private final List<String> executed = new CopyOnWriteArrayList<>();
+    private SlowQueryLog log;
+    private DataSource ds;
+
+    @Before
+    public void beforeEach() throws Exception {
+        log = new SlowQueryLog(SLOW_MILLIS / 2, 0.0, 2, null);
+        ds = this.measured(log);
+    }
+
+    @After
+    public void afterEach() {
+        log.close();
+    }
+
+    @Test
+    public void record_SlowPreparedStatement() throws SQLException {
+        try (Connection conn = ds.getConnection()) {
+            PreparedStatement stmt = conn.prepareStatement("select * from products where good = 'slow' and id = ?");
+            stmt.setObject(1, 42);
+            stmt.executeQuery();
+        }
+
+        List<SlowQueryLog.Entry> entries = log.recent();
+        Assert.assertEquals(1, entries.size());
+        Assert.assertEquals("select * from products where good = 'slow' and id = ?", entries.get(0).getSql());
+        Assert.assertEquals(List.of(42), entries.get(0).getParams());
+        Assert.assertTrue(entries.get(0).getDurationNanos() >= SLOW_MILLIS * 1_000_000);
+    }
+
+    @Test
+    public void record_FastStatementIgnored() throws SQLException {
+        try (Connection conn = ds.getConnection()) {
+            conn.createStatement().executeQuery("select * from products");
+        }
+
+        Assert.assertEquals(0, log.recent().size());
+    }
+
+    @Test
+    public void recent_BoundedByCapacity() throws SQLException {
+        try (Connection conn = ds.getConnection()) {
+            Statement stmt = conn.createStatement();
+            stmt.executeUpdate("delete from products where good = 'slow 1'");
+            stmt.executeUpdate("delete from products where good = 'slow 2'");
+            stmt.executeUpdate("delete from products where good = 'slow 3'");
+        }
+
+        List<SlowQueryLog.Entry> entries = log.recent();
+        Assert.assertEquals(Arrays.asList(
+                "delete from products where good = 'slow 2'",
+                "delete from products where good = 'slow 3'"), entries.stream().map(SlowQueryLog.Entry::getSql).toList());
+    }
+
+    @Test
+    public void record_SetNullStoresNull() throws SQLException {
+        try (Connection conn = ds.getConnection()) {
+            PreparedStatement stmt = conn.prepareStatement("update products set good = 'slow', category_name = ? where id = ?");
+            stmt.setNull(1, Types.VARCHAR);
+            stmt.setInt(2, 7);
+            stmt.executeUpdate();
+        }
+
+        Assert.assertEquals(Arrays.asList(null, 7), log.recent().get(0).getParams());
+    }
+
+    @Test
+    public void explain_QueryAnalyzed() throws Exception {
+        try (SlowQueryLog sampled = new SlowQueryLog(SLOW_MILLIS / 2, 1.0, 2, null);
+             Connection conn = this.measured(sampled).getConnection()) {
+            conn.createStatement().executeQuery("select * from products where good = 'slow'");
+
+            Assert.assertEquals(PLAN + System.lineSeparator(), awaitPlan(sampled.recent().get(0)));
+        }
+
+        Assert.assertTrue(executed.contains("explain (analyze, buffers) select * from products where good = 'slow'"));
+    }
+
+    @Test
+    public void explain_WriteNotExecuted() throws Exception {
+        try (SlowQueryLog sampled = new SlowQueryLog(SLOW_MILLIS / 2, 1.0, 2, null);
+             Connection conn = this.measured(sampled).getConnection()) {
+            conn.createStatement().executeUpdate("delete from products where good = 'slow'");
+
+            Assert.assertEquals(PLAN + System.lineSeparator(), awaitPlan(sampled.recent().get(0)));
+        }
+
+        Assert.assertTrue(executed.contains("explain delete from products where good = 'slow'"));
+    }
+
+    @Test
+    public void explain_SequenceQueryNotExecuted() throws Exception {
+        try (SlowQueryLog sampled = new SlowQueryLog(SLOW_MILLIS / 2, 1.0, 2, null);
+             Connection conn = this.measured(sampled).getConnection()) {
+            conn.createStatement().executeQuery("select nextval('slow_seq')");
+
+            Assert.assertEquals(PLAN + System.lineSeparator(), awaitPlan(sampled.recent().get(0)));
+        }
+
+        Assert.assertTrue(executed.contains("explain select nextval('slow_seq')"));
+    }
+
+    @Test
+    public void record_WrittenToLogFile() throws Exception {
+        Path dir = Files.createTempDirectory("slow-queries");
+        try (SlowQueryLog logged = new SlowQueryLog(SLOW_MILLIS / 2, 0.0, 2, dir.resolve("slow.%g.log").toString());
+             Connection conn = this.measured(logged).getConnection()) {
+            conn.createStatement().executeQuery("select * from products where good = 'slow'");
+        }
+
+        String content = Files.readString(dir.resolve("slow.0.log"));
+        Assert.assertTrue(content.contains("slow query"));
+        Assert.assertTrue(content.contains("select * from products where good = 'slow'"));
+    }
+
+    private DataSource measured(SlowQueryLog log) {
+        // statements containing "slow" take longer than the threshold
+        DataSource fake = this::fakeConnection;
+        return new SlowQueryDataSource(fake, log);
+    }
+
+    private static String awaitPlan(SlowQueryLog.Entry entry) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (entry.getPlan() == null) {
+            if (System.nanoTime() > deadline) {
+                Assert.fail("plan was not captured");
+            }
+            Thread.sleep(1);
+        }
+        return entry.getPlan();
+    }
+
+    private Connection fakeConnection() {
+        return (Connection) Proxy.newProxyInstance(SlowQueryLogTest.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "prepareStatement" -> this.fakeStatement(PreparedStatement.class, (String) args[0]);
+                    case "createStatement" -> this.fakeStatement(Statement.class, null);
+                    default -> null;
+                });
+    }
+
+    private Object fakeStatement(Class<?> type, String preparedSql) {
+        return Proxy.newProxyInstance(SlowQueryLogTest.class.getClassLoader(),
+                new Class<?>[] {type}, (proxy, method, args) -> {
+                    if (method.getName().startsWith("execute")) {
+                        String sql = args != null && args.length > 0 ? (String) args[0] : preparedSql;
+                        executed.add(sql);
+                        if (sql.startsWith("explain")) {
+                            return fakeResultSet(List.of(PLAN));
+                        }
+                        if (sql.contains("slow")) {
+                            Thread.sleep(SLOW_MILLIS);
+                        }
+                        return method.getReturnType() == int.class ? 0 : null;
+                    }
+                    return null;
+                });
+    }
+
+    private static ResultSet fakeResultSet(List<String> rows) {
+        int[] row = {-1};
+        return (ResultSet) Proxy.newProxyInstance(SlowQueryLogTest.class.getClassLoader(),
+                new Class<?>[] {ResultSet.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "next" -> ++row[0] < rows.size();
+                    case "getString" -> rows.get(row[0]);
+                    default -> null;
+                });
+    }
+}